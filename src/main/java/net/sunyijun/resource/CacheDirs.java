@@ -0,0 +1,108 @@
+/*
+ * Copyright 2015 yijun.sun
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.sunyijun.resource;
+
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFileAttributes;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.nio.file.attribute.UserPrincipal;
+import java.util.EnumSet;
+import java.util.Set;
+
+
+/**
+ * <p>Dirs in "java.io.tmpdir" to cache files copied from class path, only accessible by current user.</p>
+ * Temp dir may be shared by all users, and dir name is predictable, another user may create it first
+ * and put files in it. So an exists dir is only used if it is owned by current user,
+ * and not readable, writable or accessible by others. Else it is not trusted, and an IOException is thrown.
+ * On file system without posix permissions (eg: Windows, temp dir is already per user), it is not checked.
+ *
+ * @author yijun.sun
+ * @since 0.0.8
+ */
+public final class CacheDirs {
+
+    private static final Set<PosixFilePermission> OWNER_ONLY = EnumSet.of(PosixFilePermission.OWNER_READ,
+            PosixFilePermission.OWNER_WRITE, PosixFilePermission.OWNER_EXECUTE);
+
+    private CacheDirs() {
+    }
+
+    /**
+     * Get dir "{name}-{user.name}" in "java.io.tmpdir", create it if not exists, only current user can access.
+     *
+     * @param name dir name prefix, eg: "native-libs"
+     * @return dir, owned by current user and not accessible by others.
+     * @throws IOException if can't create dir, or dir exists but not owned by current user or accessible by others.
+     */
+    public static File getUserCacheDir(String name) throws IOException {
+        Path tempDir = new File(System.getProperty("java.io.tmpdir")).toPath();
+        Path dir = tempDir.resolve(name + "-" + System.getProperty("user.name"));
+        boolean posix = Files.getFileAttributeView(tempDir, PosixFileAttributeView.class) != null;
+        try {
+            if (posix) { // created with permissions, no time window that others can access.
+                Files.createDirectory(dir, PosixFilePermissions.asFileAttribute(OWNER_ONLY));
+            } else {
+                Files.createDirectory(dir);
+            }
+        } catch (FileAlreadyExistsException ignore) {
+            // created before, check it.
+        }
+        if (posix) {
+            checkOwnerOnly(tempDir, dir);
+        } else if (!Files.isDirectory(dir, LinkOption.NOFOLLOW_LINKS)) {
+            throw new IOException("Cache dir " + dir + " is not a directory!");
+        }
+        return dir.toFile();
+    }
+
+    private static void checkOwnerOnly(Path tempDir, Path dir) throws IOException {
+        PosixFileAttributes attributes = Files.getFileAttributeView(dir, PosixFileAttributeView.class,
+                LinkOption.NOFOLLOW_LINKS).readAttributes();
+        if (!attributes.isDirectory() || attributes.isSymbolicLink()) {
+            throw new IOException("Cache dir " + dir + " is not a directory!");
+        }
+        if (!attributes.owner().equals(getCurrentUser(tempDir))) {
+            throw new IOException("Cache dir " + dir + " is owned by " + attributes.owner()
+                    + ", not current user! Remove it or use another dir.");
+        }
+        if (!OWNER_ONLY.containsAll(attributes.permissions())) {
+            throw new IOException("Cache dir " + dir + " can be accessed by other users, permissions "
+                    + PosixFilePermissions.toString(attributes.permissions()) + "! Remove it or use another dir.");
+        }
+    }
+
+    /**
+     * Owner of a new file is current user. "user.name" may be not same as the real user, not use it.
+     */
+    private static UserPrincipal getCurrentUser(Path tempDir) throws IOException {
+        Path probe = Files.createTempFile(tempDir, ".owner", ".tmp");
+        try {
+            return Files.getOwner(probe);
+        } finally {
+            Files.deleteIfExists(probe);
+        }
+    }
+
+}
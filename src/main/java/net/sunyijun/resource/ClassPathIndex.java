@@ -0,0 +1,150 @@
+/*
+ * Copyright 2015 yijun.sun
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.sunyijun.resource;
+
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+
+/**
+ * <p>Index of resource names in class path, to know a resource is definitely not in class path.</p>
+ * Names of all entries in class path jars are read from jars' central directories in parallel,
+ * and put into a bloom filter, about 10 bits per name.
+ * Class path directories may change, so they are not indexed, just check file exists when lookup.
+ *
+ * @author yijun.sun
+ * @since 0.0.8
+ */
+final class ClassPathIndex {
+
+    private static final int BITS_PER_NAME = 10;
+    private static final int HASH_COUNT = 7;
+
+    private final long[] bits;
+    private final int bitCount;
+    private final File[] dirs;
+
+    private ClassPathIndex(int nameCount, File[] dirs) {
+        this.bitCount = Math.max(nameCount * BITS_PER_NAME, 64);
+        this.bits = new long[(bitCount + 63) / 64];
+        this.dirs = dirs;
+    }
+
+    /**
+     * Build index of class path entries.
+     */
+    static ClassPathIndex build(File[] classPathFiles) {
+        List<File> jars = new ArrayList<File>();
+        List<File> dirs = new ArrayList<File>();
+        for (File classPathFile : classPathFiles) {
+            if (classPathFile.isDirectory()) {
+                dirs.add(classPathFile);
+            } else if (classPathFile.isFile()) {
+                jars.add(classPathFile);
+            }
+        }
+        List<List<String>> jarNames = readJarNames(jars);
+        int nameCount = 0;
+        for (List<String> names : jarNames) {
+            for (String name : names) {
+                nameCount += name.endsWith("/") ? 2 : 1;
+            }
+        }
+        ClassPathIndex index = new ClassPathIndex(nameCount, dirs.toArray(new File[dirs.size()]));
+        for (List<String> names : jarNames) {
+            for (String name : names) {
+                index.add(name);
+                if (name.endsWith("/")) { // directory can also be found without "/".
+                    index.add(name.substring(0, name.length() - 1));
+                }
+            }
+        }
+        return index;
+    }
+
+    private static List<List<String>> readJarNames(List<File> jars) {
+        List<Callable<List<String>>> tasks = new ArrayList<Callable<List<String>>>(jars.size());
+        for (final File jar : jars) {
+            tasks.add(new Callable<List<String>>() {
+                public List<String> call() {
+                    final List<String> names = new ArrayList<String>();
+                    ClassPathScanner.walk(jar, "", new ClassPathScanner.EntryHandler() {
+                        public void handle(String name, long size) {
+                            names.add(name);
+                        }
+                    });
+                    return names;
+                }
+            });
+        }
+        return ClassPathScanner.runParallel(tasks, "classpath-indexer");
+    }
+
+    /**
+     * Test if resource may be in class path.
+     *
+     * @param name resource name, not start with "/"
+     * @return false if definitely not in class path.
+     */
+    boolean mayContain(String name) {
+        if (mightContainInJars(name)) {
+            return true;
+        }
+        for (File dir : dirs) {
+            if (new File(dir, name).exists()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void add(String name) {
+        int hash1 = name.hashCode();
+        int hash2 = secondHash(name);
+        for (int i = 0; i < HASH_COUNT; i++) {
+            int bit = ((hash1 + i * hash2) & Integer.MAX_VALUE) % bitCount;
+            bits[bit >>> 6] |= 1L << bit;
+        }
+    }
+
+    private boolean mightContainInJars(String name) {
+        int hash1 = name.hashCode();
+        int hash2 = secondHash(name);
+        for (int i = 0; i < HASH_COUNT; i++) {
+            int bit = ((hash1 + i * hash2) & Integer.MAX_VALUE) % bitCount;
+            if ((bits[bit >>> 6] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * FNV-1a hash of chars, independent of String.hashCode().
+     */
+    private static int secondHash(String name) {
+        int hash = 0x811C9DC5;
+        for (int i = 0; i < name.length(); i++) {
+            hash ^= name.charAt(i);
+            hash *= 0x01000193;
+        }
+        return hash | 1;
+    }
+
+}
@@ -0,0 +1,316 @@
+/*
+ * Copyright 2015 yijun.sun
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.sunyijun.resource;
+
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.regex.Pattern;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+
+/**
+ * <p>Scan class path entries for resources match a pattern.</p>
+ * Each class path entry is scanned in parallel: jar's central directory is read, directory is walked.
+ * Resources are not opened. Result of each pattern is cached.
+ *
+ * @author yijun.sun
+ * @see ClassPathUtil#scanResources(String, IResourceVisitor)
+ * @since 0.0.8
+ */
+final class ClassPathScanner {
+
+    private static final Map<String, List<ResourceEntry>> SCANNED = new ConcurrentHashMap<String, List<ResourceEntry>>();
+
+    private ClassPathScanner() {
+    }
+
+    /**
+     * Scan resources match pattern, or get from cache if scanned before.
+     *
+     * @param visitor notified when found, can be null.
+     */
+    static List<ResourceEntry> scan(String pattern, final IResourceVisitor visitor) {
+        List<ResourceEntry> scanned = SCANNED.get(pattern);
+        if (scanned != null) {
+            if (visitor != null) {
+                for (ResourceEntry entry : scanned) {
+                    visitor.visit(entry);
+                }
+            }
+            return scanned;
+        }
+        final ResourcePattern resourcePattern = new ResourcePattern(pattern);
+        List<Callable<List<ResourceEntry>>> tasks = new ArrayList<Callable<List<ResourceEntry>>>();
+        for (final File classPathFile : ClassPathUtil.getAllClassPathFiles()) {
+            tasks.add(new Callable<List<ResourceEntry>>() {
+                public List<ResourceEntry> call() {
+                    final List<ResourceEntry> entries = new ArrayList<ResourceEntry>();
+                    walk(classPathFile, resourcePattern.baseDir, new EntryHandler() {
+                        public void handle(String name, long size) {
+                            if (name.endsWith("/") || !resourcePattern.matches(name)) {
+                                return;
+                            }
+                            ResourceEntry entry = new ResourceEntry("/" + name, size, classPathFile);
+                            entries.add(entry);
+                            if (visitor != null) {
+                                synchronized (visitor) {
+                                    visitor.visit(entry);
+                                }
+                            }
+                        }
+                    });
+                    return entries;
+                }
+            });
+        }
+        List<ResourceEntry> entries = new ArrayList<ResourceEntry>();
+        for (List<ResourceEntry> classPathEntries : runParallel(tasks, "classpath-scanner")) {
+            entries.addAll(classPathEntries); // keep class path order.
+        }
+        scanned = Collections.unmodifiableList(entries);
+        SCANNED.put(pattern, scanned);
+        return scanned;
+    }
+
+    static void clearCache() {
+        SCANNED.clear();
+    }
+
+    /**
+     * Handler of entries in a class path entry.
+     */
+    interface EntryHandler {
+
+        /**
+         * @param name entry name, not start with "/", directory in jar end with "/".
+         * @param size entry size, -1 if unknown.
+         */
+        void handle(String name, long size);
+
+    }
+
+    /**
+     * Walk entries of a jar or directory. If failed, log and skip it.
+     *
+     * @param baseDir only walk entries under this dir, not start with "/", end with "/". Empty means all.
+     */
+    static void walk(File classPathFile, String baseDir, EntryHandler handler) {
+        try {
+            if (classPathFile.isDirectory()) {
+                walkDir(classPathFile, baseDir, handler);
+            } else if (classPathFile.isFile()) {
+                walkJar(classPathFile, handler);
+            }
+        } catch (IOException e) {
+            LOGGER.warn("Read class path " + classPathFile + " error! Skip it.", e);
+        }
+    }
+
+    private static void walkJar(File jar, EntryHandler handler) throws IOException {
+        ZipFile zipFile = new ZipFile(jar);
+        try {
+            Enumeration<? extends ZipEntry> entries = zipFile.entries();
+            while (entries.hasMoreElements()) {
+                ZipEntry entry = entries.nextElement();
+                handler.handle(entry.getName(), entry.getSize());
+            }
+        } finally {
+            try {
+                zipFile.close();
+            } catch (IOException ignore) {
+                // do nothing.
+            }
+        }
+    }
+
+    private static void walkDir(File dir, String baseDir, final EntryHandler handler) throws IOException {
+        final Path root = dir.toPath();
+        Path start = baseDir.isEmpty() ? root : root.resolve(baseDir);
+        if (!Files.isDirectory(start)) {
+            return;
+        }
+        Files.walkFileTree(start, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                if (attrs.isRegularFile()) {
+                    handler.handle(root.relativize(file).toString().replace(File.separatorChar, '/'), attrs.size());
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException e) {
+                LOGGER.warn("Read class path file " + file + " error! Skip it.", e);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    /**
+     * Run tasks in a temp thread pool, wait all done.
+     *
+     * @return results in same order as tasks.
+     */
+    static <T> List<T> runParallel(List<Callable<T>> tasks, String threadName) {
+        try {
+            return invokeParallel(tasks, threadName);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted when scan class path.", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException("Scan class path error!", e.getCause());
+        }
+    }
+
+    /**
+     * Run tasks in a temp thread pool, wait all done. Error of task is not wrapped, caller decides how to report it.
+     *
+     * @return results in same order as tasks.
+     * @throws InterruptedException if interrupted when wait.
+     * @throws ExecutionException   if one task failed, cause is the error of task.
+     */
+    static <T> List<T> invokeParallel(List<Callable<T>> tasks, final String threadName)
+            throws InterruptedException, ExecutionException {
+        List<T> results = new ArrayList<T>(tasks.size());
+        if (tasks.isEmpty()) {
+            return results;
+        }
+        int threads = Math.min(tasks.size(), Runtime.getRuntime().availableProcessors());
+        ExecutorService executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, threadName);
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        try {
+            List<Future<T>> futures = executor.invokeAll(tasks);
+            for (Future<T> future : futures) {
+                results.add(future.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+        return results;
+    }
+
+    /**
+     * <p>Pattern of resource absolute class path.</p>
+     * If contains "*" or "?", it is a glob: "*" match any chars except "/", "**" match any chars include "/",
+     * "?" match one char except "/". Else it is a prefix.
+     */
+    private static final class ResourcePattern {
+
+        private final String prefix;
+        private final Pattern glob;
+        /**
+         * Fixed dir part before any wildcard, only need to walk this dir.
+         */
+        private final String baseDir;
+
+        private ResourcePattern(String pattern) {
+            String name = pattern.startsWith("/") ? pattern.substring(1) : pattern;
+            int wildcard = firstWildcard(name);
+            if (wildcard < 0) {
+                prefix = name;
+                glob = null;
+                baseDir = name.substring(0, name.lastIndexOf('/') + 1);
+            } else {
+                prefix = null;
+                glob = Pattern.compile(toRegex(name));
+                baseDir = name.substring(0, name.lastIndexOf('/', wildcard) + 1);
+            }
+        }
+
+        private boolean matches(String name) {
+            return glob == null ? name.startsWith(prefix) : glob.matcher(name).matches();
+        }
+
+        private static int firstWildcard(String name) {
+            for (int i = 0; i < name.length(); i++) {
+                char c = name.charAt(i);
+                if (c == '*' || c == '?') {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private static String toRegex(String glob) {
+            StringBuilder regex = new StringBuilder();
+            StringBuilder literal = new StringBuilder();
+            int i = 0;
+            while (i < glob.length()) {
+                char c = glob.charAt(i);
+                if (c != '*' && c != '?') {
+                    literal.append(c);
+                    i++;
+                    continue;
+                }
+                if (literal.length() > 0) {
+                    regex.append(Pattern.quote(literal.toString()));
+                    literal.setLength(0);
+                }
+                if (c == '?') {
+                    regex.append("[^/]");
+                    i++;
+                } else if (glob.startsWith("**/", i)) {
+                    regex.append("(?:.*/)?");
+                    i += 3;
+                } else if (glob.startsWith("**", i)) {
+                    regex.append(".*");
+                    i += 2;
+                } else {
+                    regex.append("[^/]*");
+                    i++;
+                }
+            }
+            if (literal.length() > 0) {
+                regex.append(Pattern.quote(literal.toString()));
+            }
+            return regex.toString();
+        }
+
+    }
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ClassPathScanner.class);
+
+}
@@ -16,10 +16,8 @@
 
 package net.sunyijun.resource;
 
-import java.io.BufferedReader;
-import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
+import java.io.File;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -33,7 +31,8 @@ public class ClassPathUtil {
 
     private static volatile Boolean runInJar;
     private static volatile String[] classPathsInSystemProperty;
-    private static volatile String[] classPathsIncludeManifest;
+    private static volatile List<Path> classPathList;
+    private static volatile ClassPathIndex resourceIndex;
 
     /**
      * Test if current run as a jar(java -jar ....jar).
@@ -65,23 +64,46 @@ public class ClassPathUtil {
      * <p>
      * Get all class path strings.
      * </p>
-     * Uncertain is relative or absolute.<br>
+     * Same as {@link #getClassPathList()}, all are absolute.<br>
      *
      * @return all class path string array.
      */
     public static String[] getAllClassPaths() {
-        if (testRunMainInJar()) {
-            return getClassPathsIncludeManifest();
-        } else {
-            return getClassPathsInSystemProperty();
+        List<Path> classPathList = getClassPathList();
+        String[] allClassPaths = new String[classPathList.size()];
+        for (int i = 0; i < allClassPaths.length; i++) {
+            allClassPaths[i] = classPathList.get(i).toString();
         }
+        return allClassPaths;
+    }
+
+    /**
+     * <p>
+     * Get all class paths, include "Class-Path" in manifest of jars, in class loader's search order.
+     * </p>
+     * Class paths in "java.class.path" are relative to work dir.
+     * "Class-Path" of each jar is read by {@link java.util.jar.Manifest}, relative to that jar's dir,
+     * and jars in it are also expanded. All paths are canonical and no duplicate.<br>
+     * Only read jars once, later return cached list.
+     *
+     * @return immutable list of all class paths, may not exists.
+     */
+    public static List<Path> getClassPathList() {
+        if (classPathList == null) {
+            synchronized (ClassPathUtil.class) {
+                if (classPathList == null) {
+                    classPathList = ManifestClassPath.expand(getClassPathsInSystemProperty());
+                }
+            }
+        }
+        return classPathList;
     }
 
     /**
      * <p>
      * Get all class path strings that is file system path, not jar file.
      * </p>
-     * Uncertain is relative or absolute.<br>
+     * All are absolute.<br>
      *
      * @return class paths that is file system path.
      */
@@ -118,52 +140,95 @@ public class ClassPathUtil {
         return classPathsInSystemProperty;
     }
 
-    private static String[] getClassPathsIncludeManifest() {
-        if (classPathsIncludeManifest == null) {
+    /**
+     * Get files of all class paths, same as {@link #getClassPathList()}.
+     *
+     * @return all class path files, may not exists.
+     */
+    public static File[] getAllClassPathFiles() {
+        List<Path> classPathList = getClassPathList();
+        File[] classPathFiles = new File[classPathList.size()];
+        for (int i = 0; i < classPathFiles.length; i++) {
+            classPathFiles[i] = classPathList.get(i).toFile();
+        }
+        return classPathFiles;
+    }
+
+    /**
+     * Find all resources in class path match pattern. Same as {@link #scanResources(String, IResourceVisitor)}
+     * with null visitor.
+     *
+     * @param pattern glob or prefix of resource absolute class path.
+     * @return found resources, in class path order.
+     */
+    public static List<ResourceEntry> scanResources(String pattern) {
+        return ClassPathScanner.scan(pattern, null);
+    }
+
+    /**
+     * <p>
+     * Find all resources in class path match pattern.
+     * </p>
+     * Jars and directories in class path are scanned in parallel, resource is not opened.
+     * Pattern is a glob if contains "*" or "?": "*" match any chars in one dir level,
+     * "**" match any chars in any dir levels, "?" match one char. Eg: "/config/*.properties", "/native/**".<br>
+     * Else pattern is a prefix. Eg: "/config/" find all resources in config dir.<br>
+     * Result of same pattern is cached, use {@link #clearScanCache()} to scan again.
+     *
+     * @param pattern glob or prefix of resource absolute class path.
+     * @param visitor notified as soon as a resource found, can be null.
+     * @return found resources, in class path order.
+     */
+    public static List<ResourceEntry> scanResources(String pattern, IResourceVisitor visitor) {
+        return ClassPathScanner.scan(pattern, visitor);
+    }
+
+    /**
+     * Clear cached results of {@link #scanResources(String, IResourceVisitor)}.
+     */
+    public static void clearScanCache() {
+        ClassPathScanner.clearCache();
+    }
+
+    /**
+     * <p>
+     * Build index of all resource names in class path, to know a resource is definitely not in class path,
+     * without ask class loaders.
+     * </p>
+     * Jars in class path are read in parallel, only once. Directories in class path are not indexed,
+     * so new files in directories are still found.<br>
+     * Only build index when all resources are loaded from class path,
+     * resources from other class loaders are not indexed.
+     *
+     * @see #mayHaveResource(String)
+     */
+    public static void buildResourceIndex() {
+        if (resourceIndex == null) {
             synchronized (ClassPathUtil.class) {
-                if (classPathsIncludeManifest == null) {
-                    classPathsIncludeManifest = new String[0];
-                    InputStream is = ClassPathUtil.class.getResourceAsStream("/META-INF/MANIFEST.MF");
-                    if (is == null) {
-                        return classPathsIncludeManifest;
-                    }
-                    BufferedReader reader = new BufferedReader(new InputStreamReader(is));
-                    String line;
-                    String classPathString = "";
-                    try {
-                        boolean startClassPathLine = false;
-                        while ((line = reader.readLine()) != null) {
-                            if ((!startClassPathLine) && line.trim().startsWith("Class-Path:")) {
-                                startClassPathLine = true;
-                                classPathString = line;
-                            } else if (startClassPathLine) {
-                                if (!line.startsWith(" ")) {
-                                    break;
-                                }
-                                classPathString += line.trim();
-                            }
-                        }
-                    } catch (IOException e) {
-                        return classPathsIncludeManifest;
-                    } finally {
-                        try {
-                            reader.close();
-                            is.close();
-                        } catch (IOException ignored) {
-                        }
-                    }
-                    String[] classPathInManifestTemp = classPathString.split(" ");
-                    classPathsIncludeManifest =
-                            new String[classPathInManifestTemp.length - 1 + getClassPathsInSystemProperty().length];
-                    System.arraycopy(getClassPathsInSystemProperty(), 0, classPathsIncludeManifest, 0,
-                            getClassPathsInSystemProperty().length);
-                    System.arraycopy(classPathInManifestTemp, 1, classPathsIncludeManifest,
-                            getClassPathsInSystemProperty().length,
-                            classPathInManifestTemp.length - 1);//0 is "Class-Path:", remove
+                if (resourceIndex == null) {
+                    resourceIndex = ClassPathIndex.build(getAllClassPathFiles());
                 }
             }
         }
-        return classPathsIncludeManifest;
+    }
+
+    /**
+     * Drop resource index built by {@link #buildResourceIndex()}, call it if jars in class path changed.
+     */
+    public static void clearResourceIndex() {
+        resourceIndex = null;
+    }
+
+    /**
+     * Test if a resource may be in class path.
+     *
+     * @param absoluteClassPath resource's absolute class path, start with "/"
+     * @return false if resource is definitely not in class path.
+     * If index is not built by {@link #buildResourceIndex()}, always return true.
+     */
+    public static boolean mayHaveResource(String absoluteClassPath) {
+        ClassPathIndex index = resourceIndex;
+        return index == null || index.mayContain(absoluteClassPath.substring(1));
     }
 
 }
@@ -0,0 +1,35 @@
+/*
+ * Copyright 2015 yijun.sun
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.sunyijun.resource;
+
+/**
+ * <p>Visitor of resources found when scan class path.</p>
+ * Called in scanning threads as soon as a resource is found, but only one call at same time.
+ *
+ * @author yijun.sun
+ * @see ClassPathUtil#scanResources(String, IResourceVisitor)
+ * @since 0.0.8
+ */
+public interface IResourceVisitor {
+
+    /**
+     * Called for each resource found.
+     *
+     * @param entry found resource
+     */
+    void visit(ResourceEntry entry);
+
+}
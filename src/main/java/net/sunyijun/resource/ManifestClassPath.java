@@ -0,0 +1,118 @@
+/*
+ * Copyright 2015 yijun.sun
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.sunyijun.resource;
+
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.jar.Attributes;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+
+
+/**
+ * <p>Expand class paths with "Class-Path" in jars' manifest, same as class loader do.</p>
+ * Each jar's "Class-Path" entries are relative to the jar's dir, and jars in them are also expanded.
+ * All paths are absolute and canonical, and no duplicate, in class loader's search order.
+ *
+ * @author yijun.sun
+ * @since 0.0.8
+ */
+final class ManifestClassPath {
+
+    private ManifestClassPath() {
+    }
+
+    /**
+     * @param classPaths class paths in "java.class.path", relative path is relative to work dir.
+     * @return immutable expanded class paths.
+     */
+    static List<Path> expand(String[] classPaths) {
+        Set<Path> expanded = new LinkedHashSet<Path>();
+        Path workDir = Paths.get(System.getProperty("user.dir"));
+        for (String classPath : classPaths) {
+            if (classPath.isEmpty()) {
+                continue;
+            }
+            add(canonical(workDir.resolve(classPath)), expanded);
+        }
+        return Collections.unmodifiableList(new ArrayList<Path>(expanded));
+    }
+
+    private static void add(Path path, Set<Path> expanded) {
+        if (!expanded.add(path) || !Files.isRegularFile(path)) {
+            return;
+        }
+        for (String manifestClassPath : readManifestClassPath(path)) {
+            Path dependency;
+            try {
+                dependency = Paths.get(path.getParent().toUri().resolve(manifestClassPath));
+            } catch (RuntimeException e) {
+                LOGGER.warn("Bad Class-Path entry " + manifestClassPath + " in " + path + ", skip it.");
+                continue;
+            }
+            add(canonical(dependency), expanded);
+        }
+    }
+
+    private static String[] readManifestClassPath(Path jar) {
+        JarFile jarFile = null;
+        try {
+            jarFile = new JarFile(jar.toFile(), false);
+            Manifest manifest = jarFile.getManifest();
+            if (manifest == null) {
+                return new String[0];
+            }
+            String classPath = manifest.getMainAttributes().getValue(Attributes.Name.CLASS_PATH);
+            if (classPath == null || classPath.trim().isEmpty()) {
+                return new String[0];
+            }
+            return classPath.trim().split("\\s+");
+        } catch (IOException e) {
+            LOGGER.warn("Read manifest of " + jar + " error!", e);
+            return new String[0];
+        } finally {
+            if (jarFile != null) {
+                try {
+                    jarFile.close();
+                } catch (IOException ignore) {
+                    // do nothing.
+                }
+            }
+        }
+    }
+
+    private static Path canonical(Path path) {
+        try {
+            return path.toRealPath();
+        } catch (IOException e) { // not exists, can't resolve links.
+            return path.toAbsolutePath().normalize();
+        }
+    }
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ManifestClassPath.class);
+
+}
@@ -0,0 +1,248 @@
+/*
+ * Copyright 2015 yijun.sun
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.sunyijun.resource;
+
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+
+/**
+ * <p>Bytes of resources in memory, total bytes not more than budget. Least recently used is removed first.</p>
+ * Bytes are cached for each context class loader, same as {@link ResourceLocator}, so web apps in one container
+ * never get bytes of each other. Budget is shared by all class loaders.<br>
+ * Cache is disabled till {@link #enable(long)}. When disabled, resources are read every time.
+ * Resource bigger than budget is never cached.
+ *
+ * @author yijun.sun
+ * @see ResourceUtil#openCached(String)
+ * @since 0.0.8
+ */
+final class ResourceCache {
+
+    private static final Object LOCK = new Object();
+    /**
+     * Cached bytes of each context class loader. Class loader of a stopped web app can be collected with its bytes.
+     */
+    private static final Map<ClassLoader, LoaderCache> CACHES = new WeakHashMap<ClassLoader, LoaderCache>();
+
+    private static long maxBytes;
+    /**
+     * Count of accesses, to find least recently used one among class loaders.
+     */
+    private static long ticks;
+    /**
+     * Increased when cached bytes are removed. Bytes read before that may be old, not put them into cache.
+     */
+    private static long generation;
+    private static long hits;
+    private static long misses;
+    private static long evictions;
+
+    private ResourceCache() {
+    }
+
+    /**
+     * Enable cache, or change budget if enabled. If budget is less than cached bytes, evict till fit.
+     *
+     * @param budgetBytes max total bytes of cached resources, must be positive.
+     */
+    static void enable(long budgetBytes) {
+        if (budgetBytes <= 0) {
+            throw new IllegalArgumentException("Cache budget must be positive! " + budgetBytes);
+        }
+        synchronized (LOCK) {
+            maxBytes = budgetBytes;
+            evictToFit();
+        }
+    }
+
+    /**
+     * Disable cache, clear cached bytes and stats.
+     */
+    static void disable() {
+        synchronized (LOCK) {
+            maxBytes = 0;
+            CACHES.clear();
+            generation++;
+            hits = 0;
+            misses = 0;
+            evictions = 0;
+        }
+    }
+
+    /**
+     * Get bytes of resource from cache of context class loader, or read and cache it.
+     * Returned array is shared, never modify it.
+     *
+     * @throws IOException if not found or read failed.
+     */
+    static byte[] get(String absoluteClassPath) throws IOException {
+        ClassLoader classLoader = ResourceLocator.getClassLoader();
+        long readGeneration;
+        synchronized (LOCK) {
+            if (maxBytes > 0) {
+                LoaderCache cache = CACHES.get(classLoader);
+                Entry cached = cache == null ? null : cache.entries.get(absoluteClassPath);
+                if (cached != null) {
+                    hits++;
+                    cached.tick = ++ticks;
+                    return cached.bytes;
+                }
+                misses++;
+            }
+            readGeneration = generation;
+        }
+        byte[] read = read(ResourceLocator.locate(absoluteClassPath, classLoader)); // not hold lock when read.
+        synchronized (LOCK) {
+            if (maxBytes > 0 && read.length <= maxBytes && generation == readGeneration) {
+                LoaderCache cache = CACHES.get(classLoader);
+                if (cache == null) {
+                    cache = new LoaderCache();
+                    CACHES.put(classLoader, cache);
+                }
+                Entry old = cache.entries.put(absoluteClassPath, new Entry(read, ++ticks));
+                if (old != null) { // read by another thread at same time.
+                    cache.bytes -= old.bytes.length;
+                }
+                cache.bytes += read.length;
+                evictToFit();
+            }
+        }
+        return read;
+    }
+
+    /**
+     * Remove cached bytes of resource, of all class loaders.
+     */
+    static void remove(String absoluteClassPath) {
+        synchronized (LOCK) {
+            generation++;
+            for (LoaderCache cache : CACHES.values()) {
+                Entry removed = cache.entries.remove(absoluteClassPath);
+                if (removed != null) {
+                    cache.bytes -= removed.bytes.length;
+                }
+            }
+        }
+    }
+
+    /**
+     * Remove all cached bytes, keep stats.
+     */
+    static void clear() {
+        synchronized (LOCK) {
+            generation++;
+            CACHES.clear();
+        }
+    }
+
+    static ResourceCacheStats getStats() {
+        synchronized (LOCK) {
+            long bytes = 0;
+            int count = 0;
+            for (LoaderCache cache : CACHES.values()) {
+                bytes += cache.bytes;
+                count += cache.entries.size();
+            }
+            return new ResourceCacheStats(maxBytes, bytes, count, hits, misses, evictions);
+        }
+    }
+
+    /**
+     * Must hold LOCK. Remove least recently used one among all class loaders, till total bytes fit budget.
+     * Eldest one of each class loader is the first one, so only compare first ones.
+     */
+    private static void evictToFit() {
+        long bytes = 0;
+        for (LoaderCache cache : CACHES.values()) { // bytes of collected class loaders are not counted.
+            bytes += cache.bytes;
+        }
+        while (bytes > maxBytes) {
+            LoaderCache eldestCache = null;
+            Map.Entry<String, Entry> eldest = null;
+            for (LoaderCache cache : CACHES.values()) {
+                if (cache.entries.isEmpty()) {
+                    continue;
+                }
+                Map.Entry<String, Entry> first = cache.entries.entrySet().iterator().next();
+                if (eldest == null || first.getValue().tick < eldest.getValue().tick) {
+                    eldestCache = cache;
+                    eldest = first;
+                }
+            }
+            if (eldest == null) {
+                return;
+            }
+            eldestCache.entries.remove(eldest.getKey());
+            eldestCache.bytes -= eldest.getValue().bytes.length;
+            bytes -= eldest.getValue().bytes.length;
+            evictions++;
+        }
+    }
+
+    private static byte[] read(ResourceLocator.Location location) throws IOException {
+        File file = location.getFile();
+        if (file != null) {
+            return Files.readAllBytes(file.toPath());
+        }
+        InputStream is = location.openStream();
+        try {
+            ByteArrayOutputStream os = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int length;
+            while ((length = is.read(buffer)) != -1) {
+                os.write(buffer, 0, length);
+            }
+            return os.toByteArray();
+        } finally {
+            try {
+                is.close();
+            } catch (IOException ignore) {
+                // read side, nothing lost.
+            }
+        }
+    }
+
+    private static final class LoaderCache {
+
+        /**
+         * Access ordered, eldest is least recently used.
+         */
+        private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+        private long bytes;
+
+    }
+
+    private static final class Entry {
+
+        private final byte[] bytes;
+        private long tick;
+
+        private Entry(byte[] bytes, long tick) {
+            this.bytes = bytes;
+            this.tick = tick;
+        }
+
+    }
+
+}
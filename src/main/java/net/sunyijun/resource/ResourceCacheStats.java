@@ -0,0 +1,95 @@
+/*
+ * Copyright 2015 yijun.sun
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.sunyijun.resource;
+
+
+/**
+ * <p>Stats of resource cache, at the time got.</p>
+ * If hit rate is low and evictions keep growing, budget may be too small.
+ *
+ * @author yijun.sun
+ * @see ResourceUtil#getCacheStats()
+ * @since 0.0.8
+ */
+public final class ResourceCacheStats {
+
+    private final long maxBytes;
+    private final long bytes;
+    private final int count;
+    private final long hits;
+    private final long misses;
+    private final long evictions;
+
+    ResourceCacheStats(long maxBytes, long bytes, int count, long hits, long misses, long evictions) {
+        this.maxBytes = maxBytes;
+        this.bytes = bytes;
+        this.count = count;
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+    }
+
+    /**
+     * @return budget in bytes, 0 if cache is disabled.
+     */
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * @return total bytes of cached resources.
+     */
+    public long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * @return count of cached resources.
+     */
+    public int getCount() {
+        return count;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    /**
+     * @return count of resources removed to fit budget.
+     */
+    public long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * @return hits / (hits + misses), 0 if no request.
+     */
+    public double getHitRate() {
+        long requests = hits + misses;
+        return requests == 0 ? 0 : (double) hits / requests;
+    }
+
+    @Override
+    public String toString() {
+        return "bytes " + bytes + "/" + maxBytes + ", count " + count + ", hits " + hits + ", misses " + misses
+                + ", evictions " + evictions;
+    }
+
+}
@@ -0,0 +1,207 @@
+/*
+ * Copyright 2015 yijun.sun
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.sunyijun.resource;
+
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.net.JarURLConnection;
+import java.net.URLConnection;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.jar.JarEntry;
+
+
+/**
+ * <p>Copy resources to file system by NIO channels.</p>
+ * <ul>
+ * <li>Resource is a file: {@link FileChannel#transferTo(long, long, java.nio.channels.WritableByteChannel)},
+ * copied by operating system, not pass through java heap.</li>
+ * <li>Resource is in a jar: inflate into a {@value #BUFFER_SIZE} bytes buffer, write it to file channel.</li>
+ * </ul>
+ * Target file is pre-allocated if size is known. Resource is written into a temp file in target's dir,
+ * synced to disk, then renamed to target, so target is never half written, even after power lost.
+ * When copy many files (eg: extract a tree), sync each file is slow, caller can skip it,
+ * and sync written dirs once at the end by {@link #forceDirectory(File)}.
+ *
+ * @author yijun.sun
+ * @since 0.0.8
+ */
+final class ResourceCopier {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private ResourceCopier() {
+    }
+
+    /**
+     * Copy resource at location to target file.
+     *
+     * @return bytes copied.
+     * @throws IOException if resource not found, or copy failed. Target is not changed if failed.
+     */
+    static long copy(ResourceLocator.Location location, File targetFile) throws IOException {
+        File file = location.getFile();
+        if (file != null) {
+            return copyFile(file, targetFile, true);
+        }
+        if (!location.exists()) {
+            throw new IOException("Resource not found! " + location.getAbsoluteClassPath());
+        }
+        URLConnection connection = location.getUrl().openConnection();
+        long size = -1;
+        if (connection instanceof JarURLConnection) {
+            JarEntry entry = ((JarURLConnection) connection).getJarEntry();
+            size = entry == null ? -1 : entry.getSize();
+        }
+        return copyStream(connection.getInputStream(), size, targetFile, true);
+    }
+
+    /**
+     * Copy file to target file by transferTo.
+     *
+     * @param sync sync temp file to disk before rename.
+     * @return bytes copied.
+     */
+    static long copyFile(File sourceFile, File targetFile, boolean sync) throws IOException {
+        File tempFile = createTempFile(targetFile);
+        try {
+            long copied = 0;
+            FileChannel in = FileChannel.open(sourceFile.toPath(), StandardOpenOption.READ);
+            try {
+                FileChannel out = FileChannel.open(tempFile.toPath(), StandardOpenOption.WRITE);
+                try {
+                    long size = in.size();
+                    while (copied < size) {
+                        long transferred = in.transferTo(copied, size - copied, out);
+                        if (transferred <= 0) { // file truncated when copy.
+                            break;
+                        }
+                        copied += transferred;
+                    }
+                    if (sync) {
+                        out.force(true);
+                    }
+                } finally {
+                    out.close();
+                }
+            } finally {
+                closeQuietly(in);
+            }
+            moveAtomically(tempFile, targetFile);
+            return copied;
+        } finally {
+            Files.deleteIfExists(tempFile.toPath());
+        }
+    }
+
+    /**
+     * Copy all bytes of input stream to target file, and close input stream.
+     *
+     * @param size bytes of input stream if known, or -1.
+     * @param sync sync temp file to disk before rename.
+     * @return bytes copied.
+     */
+    static long copyStream(InputStream is, long size, File targetFile, boolean sync) throws IOException {
+        try {
+            File tempFile = createTempFile(targetFile);
+            try {
+                long copied = 0;
+                RandomAccessFile out = new RandomAccessFile(tempFile, "rw");
+                try {
+                    if (size > 0) {
+                        out.setLength(size);
+                    }
+                    FileChannel channel = out.getChannel();
+                    byte[] buffer = new byte[BUFFER_SIZE]; // per call, not kept by pooled threads.
+                    int length;
+                    while ((length = is.read(buffer)) != -1) {
+                        ByteBuffer byteBuffer = ByteBuffer.wrap(buffer, 0, length);
+                        while (byteBuffer.hasRemaining()) {
+                            channel.write(byteBuffer);
+                        }
+                        copied += length;
+                    }
+                    if (copied != size) {
+                        out.setLength(copied);
+                    }
+                    if (sync) {
+                        channel.force(true);
+                    }
+                } finally {
+                    out.close();
+                }
+                moveAtomically(tempFile, targetFile);
+                return copied;
+            } finally {
+                Files.deleteIfExists(tempFile.toPath());
+            }
+        } finally {
+            closeQuietly(is);
+        }
+    }
+
+    /**
+     * Create a temp file in same dir of target file, so it can be renamed to target atomically.
+     */
+    static File createTempFile(File targetFile) throws IOException {
+        File dir = targetFile.getAbsoluteFile().getParentFile();
+        return File.createTempFile("." + targetFile.getName() + ".", ".tmp", dir);
+    }
+
+    /**
+     * Rename file to target, replace target if exists. Atomic if file system support.
+     */
+    static void moveAtomically(File file, File targetFile) throws IOException {
+        try {
+            Files.move(file.toPath(), targetFile.toPath(),
+                    StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(file.toPath(), targetFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Sync dir to disk, so renamed files in it are not lost after power lost.
+     */
+    static void forceDirectory(File dir) {
+        try {
+            FileChannel channel = FileChannel.open(dir.toPath(), StandardOpenOption.READ);
+            try {
+                channel.force(true);
+            } finally {
+                channel.close();
+            }
+        } catch (IOException ignore) {
+            // some systems(windows) can't open directory, nothing to do.
+        }
+    }
+
+    private static void closeQuietly(java.io.Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (IOException ignore) {
+            // read side, nothing lost.
+        }
+    }
+
+}
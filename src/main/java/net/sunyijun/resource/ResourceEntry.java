@@ -0,0 +1,75 @@
+/*
+ * Copyright 2015 yijun.sun
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.sunyijun.resource;
+
+
+import java.io.File;
+
+
+/**
+ * <p>A resource found in class path.</p>
+ * Only describe the resource, not open it.
+ *
+ * @author yijun.sun
+ * @see ClassPathUtil#scanResources(String)
+ * @since 0.0.8
+ */
+public final class ResourceEntry {
+
+    private final String absoluteClassPath;
+    private final long size;
+    private final File origin;
+
+    ResourceEntry(String absoluteClassPath, long size, File origin) {
+        this.absoluteClassPath = absoluteClassPath;
+        this.size = size;
+        this.origin = origin;
+    }
+
+    /**
+     * @return resource's absolute class path, start with "/"
+     */
+    public String getAbsoluteClassPath() {
+        return absoluteClassPath;
+    }
+
+    /**
+     * @return resource size in bytes. -1 if unknown.
+     */
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * @return class path entry which resource is in, a jar file or a directory.
+     */
+    public File getOrigin() {
+        return origin;
+    }
+
+    /**
+     * @return true if resource is in a jar.
+     */
+    public boolean isInJar() {
+        return origin.isFile();
+    }
+
+    @Override
+    public String toString() {
+        return absoluteClassPath + " in " + origin;
+    }
+
+}
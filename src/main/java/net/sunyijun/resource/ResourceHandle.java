@@ -0,0 +1,229 @@
+/*
+ * Copyright 2015 yijun.sun
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.sunyijun.resource;
+
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.JarURLConnection;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.jar.JarEntry;
+
+
+/**
+ * <p>A found resource, with its size, last modified time and origin, read when handle is got.</p>
+ * Resource can be read as a channel, or mapped into memory without copy onto heap.
+ * A resource in a jar is copied to cache dir once at first {@link #map()}, then the copy is mapped.
+ *
+ * @author yijun.sun
+ * @see ResourceLocator#getHandle(String)
+ * @since 0.0.8
+ */
+public final class ResourceHandle {
+
+    private static volatile File cacheDir;
+
+    private final ResourceLocator.Location location;
+    private final long size;
+    private final long lastModified;
+    private final File origin;
+    /**
+     * CRC of jar entry, -1 if unknown or not in a jar.
+     */
+    private final long crc;
+    private volatile File mappedFile;
+
+    private ResourceHandle(ResourceLocator.Location location, long size, long lastModified, File origin, long crc) {
+        this.location = location;
+        this.size = size;
+        this.lastModified = lastModified;
+        this.origin = origin;
+        this.crc = crc;
+        this.mappedFile = location.getFile();
+    }
+
+    /**
+     * Read size, last modified time and origin of a found resource.
+     */
+    static ResourceHandle of(ResourceLocator.Location location) throws IOException {
+        File file = location.getFile();
+        if (file != null) {
+            return new ResourceHandle(location, file.length(), file.lastModified(), file, -1);
+        }
+        URLConnection connection = location.getUrl().openConnection();
+        if (connection instanceof JarURLConnection) {
+            JarURLConnection jarConnection = (JarURLConnection) connection;
+            JarEntry entry = jarConnection.getJarEntry();
+            if (entry == null) {
+                throw new IOException("Resource not found! " + location.getAbsoluteClassPath());
+            }
+            return new ResourceHandle(location, entry.getSize(), entry.getTime(),
+                    toFile(jarConnection.getJarFileURL()), entry.getCrc());
+        }
+        return new ResourceHandle(location, connection.getContentLengthLong(), connection.getLastModified(), null, -1);
+    }
+
+    private static File toFile(URL url) {
+        if (!"file".equals(url.getProtocol())) {
+            return null;
+        }
+        try {
+            return new File(url.toURI());
+        } catch (URISyntaxException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Set dir to copy resources in jars into, before map. Must set before any resource mapped.
+     * Default is "resource-cache-{user.name}" in "java.io.tmpdir", only accessible by current user.
+     * If it is created by another user, or accessible by others, map fails.
+     *
+     * @see CacheDirs#getUserCacheDir(String)
+     *
+     * @param dir cache dir
+     */
+    public static void setCacheDir(File dir) {
+        cacheDir = dir;
+    }
+
+    /**
+     * @return resource's absolute class path, start with "/"
+     */
+    public String getAbsoluteClassPath() {
+        return location.getAbsoluteClassPath();
+    }
+
+    /**
+     * @return resource size in bytes. -1 if unknown.
+     */
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * @return last modified time in milliseconds. -1 or 0 if unknown.
+     */
+    public long getLastModified() {
+        return lastModified;
+    }
+
+    /**
+     * @return the file itself if resource is a file, or the jar which resource is in. Null if unknown.
+     */
+    public File getOrigin() {
+        return origin;
+    }
+
+    /**
+     * @return true if resource is a file in file system.
+     */
+    public boolean isFile() {
+        return location.getFile() != null;
+    }
+
+    /**
+     * Open a channel to read resource.
+     * It is a {@link FileChannel} if resource is a file, or is in a jar and already mapped.
+     *
+     * @return channel, caller must close it.
+     * @throws IOException if can't open.
+     */
+    public ReadableByteChannel openChannel() throws IOException {
+        File file = mappedFile;
+        if (file != null) {
+            return FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        }
+        return Channels.newChannel(location.openStream());
+    }
+
+    /**
+     * Map resource into memory, read only. Resource in a jar is copied to cache dir once, then mapped.
+     *
+     * @return mapped buffer, still valid after this handle is gone.
+     * @throws IOException if copy or map failed.
+     */
+    public MappedByteBuffer map() throws IOException {
+        FileChannel channel = FileChannel.open(getMappedFile().toPath(), StandardOpenOption.READ);
+        try {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } finally {
+            channel.close();
+        }
+    }
+
+    private File getMappedFile() throws IOException {
+        File file = mappedFile;
+        if (file == null) {
+            synchronized (this) {
+                file = mappedFile;
+                if (file == null) {
+                    file = getCacheFile();
+                    if (!file.isFile() || file.length() != size || crc == -1) { // no crc, can't know it is same.
+                        Files.createDirectories(file.getParentFile().toPath());
+                        ResourceCopier.copy(location, file);
+                        LOGGER.debug("Copy resource " + location + " to " + file.getAbsolutePath());
+                    }
+                    mappedFile = file;
+                }
+            }
+        }
+        return file;
+    }
+
+    /**
+     * Cache file is "{cache dir}/{crc}-{size}/{name}", so different content never share a file.
+     */
+    private File getCacheFile() throws IOException {
+        String classPath = location.getAbsoluteClassPath();
+        String name = classPath.substring(classPath.lastIndexOf('/') + 1);
+        String key = crc != -1 ? Long.toHexString(crc) + "-" + size
+                : Integer.toHexString(location.getUrl().toString().hashCode()) + "-" + lastModified + "-" + size;
+        return new File(new File(getCacheDir(), key), name);
+    }
+
+    private static File getCacheDir() throws IOException {
+        File dir = cacheDir;
+        if (dir != null) {
+            return dir;
+        }
+        synchronized (ResourceHandle.class) {
+            if (cacheDir == null) {
+                cacheDir = CacheDirs.getUserCacheDir("resource-cache");
+            }
+            return cacheDir;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return location + ", size " + size;
+    }
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ResourceHandle.class);
+
+}
@@ -0,0 +1,267 @@
+/*
+ * Copyright 2015 yijun.sun
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.sunyijun.resource;
+
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.ref.WeakReference;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+
+/**
+ * <p>Find where a resource is, by absolute class path.</p>
+ * Found location is cached for each context class loader till invalidated, so web apps never share locations.
+ * Not found is never cached, resource created later will be found.
+ * Resource is found in order:
+ * <ol>
+ * <li>If current run as a jar(java -jar ....jar), file in class path directories,
+ * include directories in "Class-Path" of manifest.</li>
+ * <li>Resource found by context class loader, then by class loader of this class.
+ * It may be a file in a class path dir, or an entry in a jar.</li>
+ * </ol>
+ * If file is deleted or moved, call {@link #invalidate(String)} to find again.<br>
+ * If {@link ClassPathUtil#buildResourceIndex()} is called, resource not in index is not found without ask class loaders.
+ *
+ * @author yijun.sun
+ * @since 0.0.8
+ */
+public class ResourceLocator {
+
+    /**
+     * Found locations of each context class loader. Class loader of a stopped web app can be collected.
+     */
+    private static final Map<ClassLoader, Map<String, Location>> LOCATIONS =
+            new WeakHashMap<ClassLoader, Map<String, Location>>();
+    /**
+     * Locations of class loader used last time, most of time same class loader, no need to lock LOCATIONS.
+     */
+    private static volatile LoaderLocations lastLocations;
+
+    /**
+     * Find location of resource by context class loader.
+     * Only find at first time, later return cached location. If not found, find again next time.
+     *
+     * @param absoluteClassPath resource's absolute class path, start with "/"
+     * @return location of resource, never null. If not found, {@link Location#exists()} return false.
+     */
+    public static Location locate(String absoluteClassPath) {
+        return locate(absoluteClassPath, getClassLoader());
+    }
+
+    /**
+     * Find location of resource by given class loader, same as {@link #locate(String)}.
+     */
+    static Location locate(String absoluteClassPath, ClassLoader classLoader) {
+        Map<String, Location> locations = getLocations(classLoader);
+        Location location = locations.get(absoluteClassPath);
+        if (location == null) {
+            location = find(absoluteClassPath, classLoader);
+            if (location.exists()) {
+                locations.put(absoluteClassPath, location);
+            }
+        }
+        return location;
+    }
+
+    /**
+     * @return context class loader, or class loader of this class if not set.
+     */
+    static ClassLoader getClassLoader() {
+        ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+        return classLoader != null ? classLoader : ResourceLocator.class.getClassLoader();
+    }
+
+    private static Map<String, Location> getLocations(ClassLoader classLoader) {
+        LoaderLocations last = lastLocations;
+        if (last != null && last.classLoader.get() == classLoader) {
+            return last.locations;
+        }
+        synchronized (LOCATIONS) {
+            Map<String, Location> locations = LOCATIONS.get(classLoader);
+            if (locations == null) {
+                locations = new ConcurrentHashMap<String, Location>();
+                LOCATIONS.put(classLoader, locations);
+            }
+            lastLocations = new LoaderLocations(classLoader, locations);
+            return locations;
+        }
+    }
+
+    /**
+     * Find resource and get its handle, with size, last modified time, and can be mapped into memory.
+     *
+     * @param absoluteClassPath resource's absolute class path, start with "/"
+     * @return handle of resource, null if not found.
+     * @throws IOException if can't read resource's size.
+     */
+    public static ResourceHandle getHandle(String absoluteClassPath) throws IOException {
+        Location location = locate(absoluteClassPath);
+        return location.exists() ? ResourceHandle.of(location) : null;
+    }
+
+    /**
+     * Forget cached location of resource, next {@link #locate(String)} will find again.
+     * Cached bytes of resource are also removed.
+     *
+     * @param absoluteClassPath resource's absolute class path, start with "/"
+     */
+    public static void invalidate(String absoluteClassPath) {
+        synchronized (LOCATIONS) {
+            for (Map<String, Location> locations : LOCATIONS.values()) {
+                locations.remove(absoluteClassPath);
+            }
+        }
+        ResourceCache.remove(absoluteClassPath);
+    }
+
+    /**
+     * Forget all cached locations, and cached bytes of resources.
+     */
+    public static void invalidateAll() {
+        synchronized (LOCATIONS) {
+            for (Map<String, Location> locations : LOCATIONS.values()) {
+                locations.clear();
+            }
+        }
+        ResourceCache.clear();
+    }
+
+    private static Location find(String absoluteClassPath, ClassLoader classLoader) {
+        if (!ClassPathUtil.mayHaveResource(absoluteClassPath)) { // not ask class loaders, they may be slow.
+            return new Location(absoluteClassPath, null, null);
+        }
+        if (ClassPathUtil.testRunMainInJar()) {
+            File file = findInFileSystemClassPaths(absoluteClassPath);
+            if (file != null) {
+                return new Location(absoluteClassPath, file, null);
+            }
+        }
+        URL url = classLoader == null ? null : classLoader.getResource(absoluteClassPath.substring(1));
+        if (url == null) {
+            url = ResourceLocator.class.getResource(absoluteClassPath);
+        }
+        if (url == null) {
+            return new Location(absoluteClassPath, null, null);
+        }
+        if (!"file".equals(url.getProtocol())) {
+            return new Location(absoluteClassPath, null, url);
+        }
+        try {
+            return new Location(absoluteClassPath, new File(url.toURI()), url);
+        } catch (URISyntaxException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static File findInFileSystemClassPaths(String absoluteClassPath) {
+        for (String classPath : ClassPathUtil.getAllClassPathNotInJar()) {
+            File file = new File(classPath, absoluteClassPath);
+            if (file.isFile()) {
+                return file;
+            }
+        }
+        return null;
+    }
+
+    private static final class LoaderLocations {
+
+        private final WeakReference<ClassLoader> classLoader;
+        private final Map<String, Location> locations;
+
+        private LoaderLocations(ClassLoader classLoader, Map<String, Location> locations) {
+            this.classLoader = new WeakReference<ClassLoader>(classLoader);
+            this.locations = locations;
+        }
+
+    }
+
+    /**
+     * Location of a resource.
+     */
+    public static final class Location {
+
+        private final String absoluteClassPath;
+        private final File file;
+        private final URL url;
+
+        private Location(String absoluteClassPath, File file, URL url) {
+            this.absoluteClassPath = absoluteClassPath;
+            this.file = file;
+            this.url = url;
+        }
+
+        /**
+         * @return resource's absolute class path.
+         */
+        public String getAbsoluteClassPath() {
+            return absoluteClassPath;
+        }
+
+        /**
+         * @return true if resource found.
+         */
+        public boolean exists() {
+            return file != null || url != null;
+        }
+
+        /**
+         * @return file in file system. Null if not found, or resource is not a file(eg: in a jar).
+         */
+        public File getFile() {
+            return file;
+        }
+
+        /**
+         * @return url of resource. Null if not found, or found in file system classpath when run as a jar.
+         */
+        public URL getUrl() {
+            return url;
+        }
+
+        /**
+         * Open resource's input stream.
+         *
+         * @return input stream, caller must close it.
+         * @throws IOException if not found or can't open.
+         */
+        public InputStream openStream() throws IOException {
+            if (file != null) {
+                return new FileInputStream(file);
+            }
+            if (url != null) {
+                return url.openStream();
+            }
+            throw new IOException("Resource not found! " + absoluteClassPath);
+        }
+
+        @Override
+        public String toString() {
+            if (file != null) {
+                return file.getPath();
+            }
+            return url != null ? url.toString() : absoluteClassPath + "(not found)";
+        }
+
+    }
+
+}
@@ -16,9 +16,11 @@
 package net.sunyijun.resource;
 
 
-import java.io.*;
-import java.net.URISyntaxException;
-import java.net.URL;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
 
 
 /**
@@ -31,53 +33,99 @@ public class ResourceUtil {
 
     /**
      * Copy resources to file system.
+     * Resource is written into a temp file then renamed to target, so target is never half written.
      *
      * @param resourceAbsoluteClassPath resource's absolute class path, start with "/"
      * @param targetFile                target file
-     * @throws java.io.IOException
+     * @throws java.io.IOException if resource not found, or copy failed.
+     * @see #copyResource(String, File)
      */
     public static void copyResourceToFile(String resourceAbsoluteClassPath, File targetFile) throws IOException {
-        InputStream is = ResourceUtil.class.getResourceAsStream(resourceAbsoluteClassPath);
-        if (is == null) {
-            throw new IOException("Resource not found! " + resourceAbsoluteClassPath);
-        }
-        OutputStream os = null;
-        try {
-            os = new FileOutputStream(targetFile);
-            byte[] buffer = new byte[2048];
-            int length;
-            while ((length = is.read(buffer)) != -1) {
-                os.write(buffer, 0, length);
-            }
-            os.flush();
-        } finally {
-            try {
-                is.close();
-                if (os != null) {
-                    os.close();
-                }
-            } catch (Exception ignore) {
-                // ignore
-            }
-        }
+        copyResource(resourceAbsoluteClassPath, targetFile);
     }
 
     /**
-     * Get absolute path in file system from a classPath. If this resource not exists, return null.
+     * Same as {@link #copyResourceToFile(String, File)}, and return bytes copied.
+     *
+     * @param resourceAbsoluteClassPath resource's absolute class path, start with "/"
+     * @param targetFile                target file
+     * @return bytes copied.
+     * @throws java.io.IOException if resource not found, or copy failed.
+     * @see ResourceCopier
+     */
+    public static long copyResource(String resourceAbsoluteClassPath, File targetFile) throws IOException {
+        return ResourceCopier.copy(ResourceLocator.locate(resourceAbsoluteClassPath), targetFile);
+    }
+
+    /**
+     * Extract all resources under a class path dir to target dir, keep sub dirs.
+     * Jar is opened once and read in one pass, files in directory are copied in parallel.
+     * Files already same as resources are skipped.
+     *
+     * @param classPathPrefix class path dir, like "/assets"
+     * @param targetDir       target dir, created if not exists
+     * @return count of copied files, skipped files not included.
+     * @throws java.io.IOException if copy failed.
+     * @see TreeExtractor
+     */
+    public static int extractTree(String classPathPrefix, File targetDir) throws IOException {
+        return TreeExtractor.extract(classPathPrefix, targetDir);
+    }
+
+    /**
+     * Enable cache of resource bytes in memory, or change budget if enabled.
+     * Least recently used resources are removed when total bytes over budget.
+     *
+     * @param maxBytes max total bytes of cached resources
+     * @see #openCached(String)
+     */
+    public static void enableCache(long maxBytes) {
+        ResourceCache.enable(maxBytes);
+    }
+
+    /**
+     * Disable cache of resource bytes, clear cached bytes and stats.
+     */
+    public static void disableCache() {
+        ResourceCache.disable();
+    }
+
+    /**
+     * Open resource from memory cache, read and cache it if not cached.
+     * If cache is not enabled, resource is read every time.
+     *
+     * @param resourceAbsoluteClassPath resource's absolute class path, start with "/"
+     * @return input stream of cached bytes, no need to close.
+     * @throws java.io.IOException if resource not found, or read failed.
+     * @see #enableCache(long)
+     */
+    public static InputStream openCached(String resourceAbsoluteClassPath) throws IOException {
+        return new ByteArrayInputStream(ResourceCache.get(resourceAbsoluteClassPath));
+    }
+
+    /**
+     * Same as {@link #openCached(String)}, but return a read only buffer of cached bytes.
+     */
+    public static ByteBuffer getCached(String resourceAbsoluteClassPath) throws IOException {
+        return ByteBuffer.wrap(ResourceCache.get(resourceAbsoluteClassPath)).asReadOnlyBuffer();
+    }
+
+    /**
+     * @return stats of cache, to check budget is enough.
+     */
+    public static ResourceCacheStats getCacheStats() {
+        return ResourceCache.getStats();
+    }
+
+    /**
+     * Get absolute path in file system from a classPath. If this resource not exists or not a file, return null.
+     *
+     * @see ResourceLocator#locate(String)
+     * @see ResourceLocator#getHandle(String)
      */
     public static String getAbsolutePath(String classPath) {
-        URL configUrl = Thread.currentThread().getContextClassLoader().getResource(classPath.substring(1));
-        if (configUrl == null) {
-            configUrl = ResourceUtil.class.getResource(classPath);
-        }
-        if (configUrl == null) {
-            return null;
-        }
-        try {
-            return configUrl.toURI().getPath();
-        } catch (URISyntaxException e) {
-            throw new RuntimeException(e);
-        }
+        File file = ResourceLocator.locate(classPath).getFile();
+        return file == null ? null : file.getAbsolutePath();
     }
 
 }
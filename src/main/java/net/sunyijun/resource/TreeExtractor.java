@@ -0,0 +1,243 @@
+/*
+ * Copyright 2015 yijun.sun
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.sunyijun.resource;
+
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+
+/**
+ * <p>Extract all resources under a class path dir to file system.</p>
+ * Each class path entry is extracted in class path order, a resource already extracted from former entry is ignored,
+ * same as class loader.
+ * <ul>
+ * <li>Jar: opened once, entries are read in one sequential pass.</li>
+ * <li>Directory: files are copied in parallel, thread count is not more than cpu count.</li>
+ * </ul>
+ * Files are not synced one by one, dirs written are synced once at the end.
+ * Extracted file's last modified time is set to resource's.
+ * A file with same size and last modified time as resource (and same CRC if jar entry has no time) is skipped.
+ *
+ * @author yijun.sun
+ * @see ResourceUtil#extractTree(String, File)
+ * @since 0.0.8
+ */
+final class TreeExtractor {
+
+    private static final int CRC_BUFFER_SIZE = 64 * 1024;
+
+    private TreeExtractor() {
+    }
+
+    /**
+     * @return count of copied files, skipped files not included.
+     */
+    static int extract(String classPathPrefix, File targetDir) throws IOException {
+        String baseDir = toBaseDir(classPathPrefix);
+        Files.createDirectories(targetDir.toPath());
+        Set<String> extracted = new HashSet<String>();
+        Set<File> writtenDirs = Collections.synchronizedSet(new HashSet<File>());
+        int copied = 0;
+        for (File classPathFile : ClassPathUtil.getAllClassPathFiles()) {
+            if (classPathFile.isDirectory()) {
+                copied += extractDir(classPathFile, baseDir, targetDir, extracted, writtenDirs);
+            } else if (classPathFile.isFile()) {
+                copied += extractJar(classPathFile, baseDir, targetDir, extracted, writtenDirs);
+            }
+        }
+        for (File dir : writtenDirs) {
+            ResourceCopier.forceDirectory(dir);
+        }
+        LOGGER.debug("Extract " + classPathPrefix + " to " + targetDir + ", " + extracted.size() + " files, "
+                + copied + " copied.");
+        return copied;
+    }
+
+    /**
+     * "/assets" or "assets/" to "assets/", "/" to "".
+     */
+    private static String toBaseDir(String classPathPrefix) {
+        String baseDir = classPathPrefix.startsWith("/") ? classPathPrefix.substring(1) : classPathPrefix;
+        if (!baseDir.isEmpty() && !baseDir.endsWith("/")) {
+            baseDir += "/";
+        }
+        return baseDir;
+    }
+
+    private static int extractJar(File jar, String baseDir, File targetDir, Set<String> extracted,
+                                  Set<File> writtenDirs) throws IOException {
+        int copied = 0;
+        ZipFile zipFile = new ZipFile(jar);
+        try {
+            Enumeration<? extends ZipEntry> entries = zipFile.entries();
+            while (entries.hasMoreElements()) {
+                ZipEntry entry = entries.nextElement();
+                String name = entry.getName();
+                if (entry.isDirectory() || !name.startsWith(baseDir) || !extracted.add(name)) {
+                    continue;
+                }
+                File targetFile = toTargetFile(targetDir, name.substring(baseDir.length()));
+                if (targetFile == null || isSame(entry, targetFile)) {
+                    continue;
+                }
+                Files.createDirectories(targetFile.getParentFile().toPath());
+                ResourceCopier.copyStream(zipFile.getInputStream(entry), entry.getSize(), targetFile, false);
+                writtenDirs.add(targetFile.getParentFile());
+                if (entry.getTime() != -1) {
+                    Files.setLastModifiedTime(targetFile.toPath(), FileTime.fromMillis(entry.getTime()));
+                }
+                copied++;
+            }
+        } finally {
+            try {
+                zipFile.close();
+            } catch (IOException ignore) {
+                // do nothing.
+            }
+        }
+        return copied;
+    }
+
+    private static int extractDir(final File dir, final String baseDir, final File targetDir, Set<String> extracted,
+                                  final Set<File> writtenDirs) throws IOException {
+        final List<String> names = new ArrayList<String>();
+        ClassPathScanner.walk(dir, baseDir, new ClassPathScanner.EntryHandler() {
+            public void handle(String name, long size) {
+                names.add(name);
+            }
+        });
+        List<Callable<Boolean>> tasks = new ArrayList<Callable<Boolean>>();
+        for (final String name : names) {
+            if (!extracted.add(name)) {
+                continue;
+            }
+            final File targetFile = toTargetFile(targetDir, name.substring(baseDir.length()));
+            if (targetFile == null) {
+                continue;
+            }
+            tasks.add(new Callable<Boolean>() {
+                public Boolean call() throws IOException {
+                    File sourceFile = new File(dir, name);
+                    long lastModified = sourceFile.lastModified();
+                    if (targetFile.length() == sourceFile.length() && targetFile.lastModified() == lastModified
+                            && targetFile.isFile()) {
+                        return false;
+                    }
+                    Files.createDirectories(targetFile.getParentFile().toPath());
+                    ResourceCopier.copyFile(sourceFile, targetFile, false);
+                    writtenDirs.add(targetFile.getParentFile());
+                    Files.setLastModifiedTime(targetFile.toPath(), FileTime.fromMillis(lastModified));
+                    return true;
+                }
+            });
+        }
+        int copied = 0;
+        for (Boolean result : copyParallel(tasks)) {
+            if (result) {
+                copied++;
+            }
+        }
+        return copied;
+    }
+
+    /**
+     * Run copy tasks in parallel. Error of a task is thrown as it is, so disk full is reported as an IOException.
+     */
+    private static List<Boolean> copyParallel(List<Callable<Boolean>> tasks) throws IOException {
+        try {
+            return ClassPathScanner.invokeParallel(tasks, "resource-extractor");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            InterruptedIOException exception = new InterruptedIOException("Interrupted when extract resources.");
+            exception.initCause(e);
+            throw exception;
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IOException("Extract resources error!", cause);
+        }
+    }
+
+    /**
+     * @return null if name is out of target dir, like "../x".
+     */
+    private static File toTargetFile(File targetDir, String relativeName) {
+        File targetFile = new File(targetDir, relativeName);
+        if (!targetFile.toPath().normalize().startsWith(targetDir.toPath().normalize())) {
+            LOGGER.warn("Resource " + relativeName + " is out of " + targetDir + "! Skip it.");
+            return null;
+        }
+        return targetFile;
+    }
+
+    private static boolean isSame(ZipEntry entry, File targetFile) throws IOException {
+        if (!targetFile.isFile() || entry.getSize() == -1 || targetFile.length() != entry.getSize()) {
+            return false;
+        }
+        if (entry.getTime() != -1) {
+            return targetFile.lastModified() == entry.getTime();
+        }
+        return entry.getCrc() != -1 && crc(targetFile) == entry.getCrc();
+    }
+
+    private static long crc(File file) throws IOException {
+        CRC32 crc = new CRC32();
+        FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        try {
+            ByteBuffer buffer = ByteBuffer.allocate(CRC_BUFFER_SIZE);
+            while (channel.read(buffer) != -1) {
+                buffer.flip();
+                crc.update(buffer.array(), 0, buffer.limit());
+                buffer.clear();
+            }
+        } finally {
+            channel.close();
+        }
+        return crc.getValue();
+    }
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TreeExtractor.class);
+
+}
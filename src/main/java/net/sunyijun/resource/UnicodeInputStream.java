@@ -22,6 +22,7 @@ package net.sunyijun.resource;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.PushbackInputStream;
 
 /**
@@ -49,6 +50,7 @@ public class UnicodeInputStream extends InputStream {
     String defaultEnc;
     String encoding;
     private static final int BOM_SIZE = 4;
+    private static final int TRANSFER_BUFFER_SIZE = 8192;
 
     public UnicodeInputStream(InputStream in) {
         internalIn = new PushbackInputStream(in, BOM_SIZE);
@@ -132,4 +134,38 @@ public class UnicodeInputStream extends InputStream {
         isInited = true;
         return internalIn.read();
     }
+
+    /**
+     * Read bytes in bulk from underlying stream, not byte by byte.
+     */
+    public int read(byte[] b, int off, int len) throws IOException {
+        isInited = true;
+        return internalIn.read(b, off, len);
+    }
+
+    public long skip(long n) throws IOException {
+        isInited = true;
+        return internalIn.skip(n);
+    }
+
+    public int available() throws IOException {
+        return internalIn.available();
+    }
+
+    /**
+     * Read all bytes and write to out, with a large buffer.
+     *
+     * @return bytes count transferred.
+     */
+    public long transferTo(OutputStream out) throws IOException {
+        isInited = true;
+        byte[] buffer = new byte[TRANSFER_BUFFER_SIZE];
+        long transferred = 0;
+        int n;
+        while ((n = internalIn.read(buffer, 0, buffer.length)) != -1) {
+            out.write(buffer, 0, n);
+            transferred += n;
+        }
+        return transferred;
+    }
 }
\ No newline at end of file
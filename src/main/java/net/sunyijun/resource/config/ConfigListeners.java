@@ -0,0 +1,159 @@
+/*
+ * Copyright 2015 yijun.sun
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.sunyijun.resource.config;
+
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+
+/**
+ * <p>Change listeners of one {@link OneProperties}.</p>
+ * When snapshot replaced, compute changed keys once, then notify listeners of changed keys.
+ * All work is done in one shared background thread, so the thread that reload or modify configs is not blocked,
+ * and changes are notified in the order they happened.
+ *
+ * @author yijun.sun
+ * @since 0.0.8
+ */
+final class ConfigListeners {
+
+    private static final ExecutorService DISPATCHER = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "config-listener");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    private final OneProperties configs;
+    private final List<Registration> registrations = new CopyOnWriteArrayList<Registration>();
+
+    ConfigListeners(OneProperties configs) {
+        this.configs = configs;
+    }
+
+    void add(IConfigKey[] keys, IConfigChangeListener listener) {
+        registrations.add(new Registration(keys, listener));
+    }
+
+    /**
+     * Remove listener from all keys it listen to.
+     *
+     * @return true if listener is removed.
+     */
+    boolean remove(IConfigChangeListener listener) {
+        boolean removed = false;
+        for (Registration registration : registrations) {
+            if (registration.listener == listener) {
+                removed |= registrations.remove(registration);
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * @return true if no listener.
+     */
+    boolean isEmpty() {
+        return registrations.isEmpty();
+    }
+
+    /**
+     * Add all listeners of other configs, used when configs object is replaced.
+     */
+    void addAll(ConfigListeners other) {
+        registrations.addAll(other.registrations);
+    }
+
+    /**
+     * Notify listeners for keys changed between two snapshots, in background thread.
+     */
+    void fireChanges(final ConfigSnapshot oldSnapshot, final ConfigSnapshot newSnapshot) {
+        if (registrations.isEmpty() || oldSnapshot == null || oldSnapshot == newSnapshot) {
+            return;
+        }
+        DISPATCHER.execute(new Runnable() {
+            public void run() {
+                dispatch(oldSnapshot, newSnapshot);
+            }
+        });
+    }
+
+    private void dispatch(ConfigSnapshot oldSnapshot, ConfigSnapshot newSnapshot) {
+        Set<String> changedKeys = diff(oldSnapshot.getConfigs(), newSnapshot.getConfigs());
+        if (changedKeys.isEmpty()) {
+            return;
+        }
+        for (Registration registration : registrations) {
+            for (IConfigKey key : registration.keys) {
+                String keyString = key.getKeyString();
+                if (!changedKeys.contains(keyString)) {
+                    continue;
+                }
+                String oldValue = configs.getConfigValue(oldSnapshot, keyString, key).getValue();
+                String newValue = configs.getConfigValue(newSnapshot, keyString, key).getValue();
+                if (oldValue == null ? newValue == null : oldValue.equals(newValue)) {
+                    continue; // changed to or from default value, but value is same.
+                }
+                try {
+                    registration.listener.configChanged(key, oldValue, newValue);
+                } catch (RuntimeException e) {
+                    LOGGER.warn("Notify config " + keyString + " changed error!", e);
+                }
+            }
+        }
+    }
+
+    private static Set<String> diff(Map<String, String> oldConfigs, Map<String, String> newConfigs) {
+        Set<String> changedKeys = new HashSet<String>();
+        for (Map.Entry<String, String> entry : newConfigs.entrySet()) {
+            if (!entry.getValue().equals(oldConfigs.get(entry.getKey()))) {
+                changedKeys.add(entry.getKey());
+            }
+        }
+        for (String key : oldConfigs.keySet()) {
+            if (!newConfigs.containsKey(key)) {
+                changedKeys.add(key);
+            }
+        }
+        return changedKeys;
+    }
+
+    private static final class Registration {
+
+        private final IConfigKey[] keys;
+        private final IConfigChangeListener listener;
+
+        private Registration(IConfigKey[] keys, IConfigChangeListener listener) {
+            this.keys = keys;
+            this.listener = listener;
+        }
+
+    }
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ConfigListeners.class);
+
+}
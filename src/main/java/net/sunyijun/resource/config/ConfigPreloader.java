@@ -0,0 +1,134 @@
+/*
+ * Copyright 2015 yijun.sun
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.sunyijun.resource.config;
+
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+
+/**
+ * <p>Load many configs in parallel.</p>
+ * Each configs is loaded in a bounded shared thread pool, returned future is done after all loaded.
+ * If a configs is already loaded, or is loading by another thread, it is not loaded again.
+ *
+ * @author yijun.sun
+ * @see Configs#preload(String...)
+ * @since 0.0.8
+ */
+final class ConfigPreloader {
+
+    private static final int MAX_THREADS = Math.min(Runtime.getRuntime().availableProcessors(), 8);
+
+    private ConfigPreloader() {
+    }
+
+    /**
+     * Start load all configs in background.
+     *
+     * @return future done after all configs loaded. If some load failed, get() throw the first error.
+     */
+    static Future<Void> preload(Collection<OneProperties> allConfigs) {
+        List<Future<?>> futures = new ArrayList<Future<?>>(allConfigs.size());
+        for (final OneProperties configs : allConfigs) {
+            futures.add(PreloadThreads.EXECUTOR.submit(new Callable<Void>() {
+                public Void call() {
+                    configs.getSnapshot();
+                    return null;
+                }
+            }));
+        }
+        return new AllFuture(futures);
+    }
+
+    /**
+     * Future of many futures, done when all done.
+     */
+    private static final class AllFuture implements Future<Void> {
+
+        private final List<Future<?>> futures;
+
+        private AllFuture(List<Future<?>> futures) {
+            this.futures = futures;
+        }
+
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            boolean cancelled = false;
+            for (Future<?> future : futures) {
+                cancelled |= future.cancel(mayInterruptIfRunning);
+            }
+            return cancelled;
+        }
+
+        public boolean isCancelled() {
+            for (Future<?> future : futures) {
+                if (future.isCancelled()) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        public boolean isDone() {
+            for (Future<?> future : futures) {
+                if (!future.isDone()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        public Void get() throws InterruptedException, ExecutionException {
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            return null;
+        }
+
+        public Void get(long timeout, TimeUnit unit)
+                throws InterruptedException, ExecutionException, TimeoutException {
+            long deadline = System.nanoTime() + unit.toNanos(timeout);
+            for (Future<?> future : futures) {
+                future.get(Math.max(deadline - System.nanoTime(), 0), TimeUnit.NANOSECONDS);
+            }
+            return null;
+        }
+
+    }
+
+    private static final class PreloadThreads {
+
+        private static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(MAX_THREADS,
+                new ThreadFactory() {
+                    public Thread newThread(Runnable r) {
+                        Thread thread = new Thread(r, "config-preload");
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+
+    }
+
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright 2015 yijun.sun
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.sunyijun.resource.config;
+
+
+import java.math.BigDecimal;
+
+
+/**
+ * <p>View of configs which key start with one prefix, simulate a section in properties file.</p>
+ * Example:<br>
+ * If key.getKeyString() is "test", <br>
+ * Configs.getSystemConfigSection("1.").getConfig(key); will return "1.test" config value in system config file.
+ * <p>
+ * Prefixed key strings of enum keys are resolved once for each loaded configs,
+ * so get config from section not concat strings. After reload or modify, section get new values.
+ * </p>
+ *
+ * @author yijun.sun
+ * @see Configs#getSystemConfigSection(String)
+ * @see Configs#getSelfConfigSection(String, String)
+ * @since 0.0.8
+ */
+public class ConfigSection {
+
+    private final OneProperties configs;
+    private final String keyPrefix;
+    private volatile SectionValues sectionValues;
+
+    ConfigSection(OneProperties configs, String keyPrefix) {
+        this.configs = configs;
+        this.keyPrefix = keyPrefix;
+    }
+
+    /**
+     * @return prefix of all keys in this section.
+     */
+    public String getKeyPrefix() {
+        return keyPrefix;
+    }
+
+    ConfigValue getConfigValue(IConfigKey key) {
+        ConfigSnapshot snapshot = configs.getSnapshot();
+        if (!(key instanceof Enum)) {
+            return configs.getConfigValue(snapshot, keyPrefix + key.getKeyString(), key);
+        }
+        SectionValues values = sectionValues;
+        if (values == null || values.snapshot != snapshot) {
+            values = new SectionValues(snapshot);
+            sectionValues = values;
+        }
+        Enum<?> enumKey = (Enum<?>) key;
+        ConfigValue[] enumValues = values.enumValues.get(enumKey.getDeclaringClass());
+        if (enumValues == null) {
+            Object[] keys = enumKey.getDeclaringClass().getEnumConstants();
+            enumValues = new ConfigValue[keys.length];
+            for (int i = 0; i < keys.length; i++) {
+                IConfigKey enumConstant = (IConfigKey) keys[i];
+                enumValues[i] = configs.getConfigValue(snapshot, keyPrefix + enumConstant.getKeyString(), enumConstant);
+            }
+            values.enumValues.put(enumKey.getDeclaringClass(), enumValues);
+        }
+        return enumValues[enumKey.ordinal()];
+    }
+
+    /**
+     * <p>Get config string.</p>
+     * If not config will return null.
+     *
+     * @param key config key, key string not include prefix
+     * @return string value
+     */
+    public String getConfig(IConfigKey key) {
+        return getConfigValue(key).getValue();
+    }
+
+    /**
+     * <p>Get config bool value. For true/false config.</p>
+     * If not config will return false.
+     *
+     * @param key config key, key string not include prefix
+     * @return true/false
+     */
+    public boolean isConfigTrue(IConfigKey key) {
+        return getConfigValue(key).isTrue();
+    }
+
+    /**
+     * <p>Get config decimal value. For all number config.</p>
+     * If not config will return null.
+     *
+     * @param key config key, key string not include prefix
+     * @return BigDecimal object.
+     */
+    public BigDecimal getDecimalConfig(IConfigKey key) {
+        return getConfigValue(key).getDecimal();
+    }
+
+    /**
+     * <p>Get config int value.</p>
+     * If not config will return defaultValue.
+     *
+     * @param key          config key, key string not include prefix
+     * @param defaultValue value to return if not config
+     * @return int value
+     * @throws NumberFormatException if config value is not an int.
+     */
+    public int getIntConfig(IConfigKey key, int defaultValue) {
+        return getConfigValue(key).getInt(defaultValue);
+    }
+
+    /**
+     * <p>Get config long value.</p>
+     * If not config will return defaultValue.
+     *
+     * @param key          config key, key string not include prefix
+     * @param defaultValue value to return if not config
+     * @return long value
+     * @throws NumberFormatException if config value is not a long.
+     */
+    public long getLongConfig(IConfigKey key, long defaultValue) {
+        return getConfigValue(key).getLong(defaultValue);
+    }
+
+    /**
+     * <p>Get config double value.</p>
+     * If not config will return defaultValue.
+     *
+     * @param key          config key, key string not include prefix
+     * @param defaultValue value to return if not config
+     * @return double value
+     * @throws NumberFormatException if config value is not a number.
+     */
+    public double getDoubleConfig(IConfigKey key, double defaultValue) {
+        return getConfigValue(key).getDouble(defaultValue);
+    }
+
+    /**
+     * Values of this section resolved from one snapshot.
+     */
+    private static final class SectionValues {
+
+        private final ConfigSnapshot snapshot;
+        private final EnumValuesTable enumValues = new EnumValuesTable();
+
+        private SectionValues(ConfigSnapshot snapshot) {
+            this.snapshot = snapshot;
+        }
+
+    }
+
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2015 yijun.sun
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.sunyijun.resource.config;
+
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+
+/**
+ * <p>Immutable contents of one properties file, and values parsed from it.</p>
+ * Reload or modify must create a new snapshot, never change an exists one.
+ * So a snapshot can be read by many threads without lock, and parsed values never outlive their contents.
+ *
+ * @author yijun.sun
+ * @since 0.0.8
+ */
+final class ConfigSnapshot {
+
+    static final ConfigSnapshot EMPTY = new ConfigSnapshot(Collections.<String, String>emptyMap());
+
+    private final Map<String, String> configs;
+    private final Map<String, ConfigValue> values = new ConcurrentHashMap<String, ConfigValue>();
+    /**
+     * Values of enum keys, array index is enum ordinal.
+     */
+    private final EnumValuesTable enumValues = new EnumValuesTable();
+
+    /**
+     * @param configs all configs, must not be changed after create snapshot.
+     */
+    private ConfigSnapshot(Map<String, String> configs) {
+        this.configs = configs;
+    }
+
+    /**
+     * @param configs all configs, owned by snapshot after create, caller must not change it any more.
+     */
+    static ConfigSnapshot of(Map<String, String> configs) {
+        return new ConfigSnapshot(Collections.unmodifiableMap(configs));
+    }
+
+    /**
+     * Create a new snapshot with all configs of this one, and modified configs.
+     *
+     * @param modifyConfigs modified configs, key is full key string. If one value is null, will not update that one.
+     */
+    ConfigSnapshot modify(Map<String, String> modifyConfigs) {
+        Map<String, String> newConfigs = new HashMap<String, String>(configs);
+        for (Map.Entry<String, String> entry : modifyConfigs.entrySet()) {
+            if (entry.getValue() != null) {
+                newConfigs.put(entry.getKey(), entry.getValue());
+            }
+        }
+        return new ConfigSnapshot(Collections.unmodifiableMap(newConfigs));
+    }
+
+    /**
+     * @return all configs, unmodifiable.
+     */
+    Map<String, String> getConfigs() {
+        return configs;
+    }
+
+    /**
+     * Get parsed value of key string, parse only at first access.
+     * Only values of configured keys are kept, so not configured keys never grow memory.
+     */
+    ConfigValue getValue(String keyString) {
+        ConfigValue configValue = values.get(keyString);
+        if (configValue == null) {
+            String value = configs.get(keyString);
+            if (value == null) {
+                return ConfigValue.ABSENT;
+            }
+            configValue = new ConfigValue(value);
+            values.put(keyString, configValue);
+        }
+        return configValue;
+    }
+
+    ConfigValue[] getEnumValues(Class<?> enumClass) {
+        return enumValues.get(enumClass);
+    }
+
+    void putEnumValues(Class<?> enumClass, ConfigValue[] values) {
+        enumValues.put(enumClass, values);
+    }
+
+}
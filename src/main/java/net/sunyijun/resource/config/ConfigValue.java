@@ -0,0 +1,178 @@
+/*
+ * Copyright 2015 yijun.sun
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.sunyijun.resource.config;
+
+
+import java.math.BigDecimal;
+
+
+/**
+ * <p>One config value, each type parsed only once.</p>
+ * String value is parsed to a number type at first get of that type, result is kept,
+ * so get typed value many times will not parse again. Value never got as number is never parsed.<br>
+ * Immutable, can be shared between threads.
+ *
+ * @author yijun.sun
+ * @since 0.0.8
+ */
+final class ConfigValue {
+
+    private static final String TRUE = "true";
+    /**
+     * Parsed result of a value which is not that type.
+     */
+    private static final Object INVALID = new Object();
+
+    /**
+     * Value for a key not config.
+     */
+    static final ConfigValue ABSENT = new ConfigValue(null);
+
+    private final String value;
+    private final boolean bool;
+    /**
+     * Parsed values, null if not parsed yet, {@link #INVALID} if not that type.
+     * Parse twice at same time is harmless, result is same.
+     */
+    private volatile Object decimal;
+    private volatile Object longValue;
+    private volatile Object doubleValue;
+
+    ConfigValue(String value) {
+        this.value = value;
+        this.bool = TRUE.equalsIgnoreCase(value);
+    }
+
+    /**
+     * @return true if this value is config (string value not null).
+     */
+    boolean isPresent() {
+        return value != null;
+    }
+
+    /**
+     * @return string value, null if not config.
+     */
+    String getValue() {
+        return value;
+    }
+
+    /**
+     * @return true if value is "true", ignore case.
+     */
+    boolean isTrue() {
+        return bool;
+    }
+
+    /**
+     * @return BigDecimal value, null if not config.
+     * @throws NumberFormatException if value is not a number.
+     */
+    BigDecimal getDecimal() {
+        if (value == null) {
+            return null;
+        }
+        Object parsed = decimal;
+        if (parsed == null) {
+            try {
+                parsed = new BigDecimal(value);
+            } catch (NumberFormatException e) {
+                parsed = INVALID;
+            }
+            decimal = parsed;
+        }
+        if (parsed == INVALID) {
+            throw new NumberFormatException("Config value \"" + value + "\" is not a number.");
+        }
+        return (BigDecimal) parsed;
+    }
+
+    /**
+     * @throws NumberFormatException if value is not an int number.
+     */
+    int getInt(int defaultValue) {
+        if (value == null) {
+            return defaultValue;
+        }
+        Object parsed = parseLong();
+        if (parsed == INVALID || (Long) parsed < Integer.MIN_VALUE || (Long) parsed > Integer.MAX_VALUE) {
+            throw new NumberFormatException("Config value \"" + value + "\" is not an int.");
+        }
+        return ((Long) parsed).intValue();
+    }
+
+    /**
+     * @throws NumberFormatException if value is not a long number.
+     */
+    long getLong(long defaultValue) {
+        if (value == null) {
+            return defaultValue;
+        }
+        Object parsed = parseLong();
+        if (parsed == INVALID) {
+            throw new NumberFormatException("Config value \"" + value + "\" is not a long.");
+        }
+        return (Long) parsed;
+    }
+
+    /**
+     * Parse as long, also accept a decimal without fraction, like "10.0" or "1E3".
+     */
+    private Object parseLong() {
+        Object parsed = longValue;
+        if (parsed != null) {
+            return parsed;
+        }
+        try {
+            parsed = Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            try {
+                parsed = getDecimal().longValueExact();
+            } catch (NumberFormatException notNumber) {
+                parsed = INVALID;
+            } catch (ArithmeticException notLong) { // has fraction or out of long range.
+                parsed = INVALID;
+            }
+        }
+        longValue = parsed;
+        return parsed;
+    }
+
+    /**
+     * Parse by {@link Double#parseDouble(String)}, so "NaN" and "Infinity" are also accepted.
+     *
+     * @throws NumberFormatException if value is not a number.
+     */
+    double getDouble(double defaultValue) {
+        if (value == null) {
+            return defaultValue;
+        }
+        Object parsed = doubleValue;
+        if (parsed == null) {
+            try {
+                parsed = Double.parseDouble(value);
+            } catch (NumberFormatException e) {
+                parsed = INVALID;
+            }
+            doubleValue = parsed;
+        }
+        if (parsed == INVALID) {
+            throw new NumberFormatException("Config value \"" + value + "\" is not a number.");
+        }
+        return (Double) parsed;
+    }
+
+}
@@ -0,0 +1,240 @@
+/*
+ * Copyright 2015 yijun.sun
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.sunyijun.resource.config;
+
+
+import net.sunyijun.resource.ResourceLocator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * <p>Watch config files in file system, reload configs when file changed.</p>
+ * One background thread watch all directories of registered config files.
+ * Events of config files come in a short time are merged, after no more event of config files in debounce time,
+ * reload changed configs once. Events of other files in same directories are ignored.
+ * If config files keep changing, reload anyway after {@value #MAX_WAIT_DEBOUNCES} debounce times
+ * from first change.
+ * Reload build a new snapshot and replace old one, so readers always see whole file.
+ *
+ * @author yijun.sun
+ * @see Configs#startWatchConfigs(long)
+ * @since 0.0.8
+ */
+class ConfigWatcher implements Runnable {
+
+    /**
+     * Max wait from first change before reload, in count of debounce time.
+     */
+    static final int MAX_WAIT_DEBOUNCES = 10;
+
+    private final WatchService watchService;
+    private final long debounceMillis;
+    private final Thread thread;
+
+    /**
+     * Key is config file path, value is configs loaded from that file.
+     */
+    private final Map<Path, Set<OneProperties>> watchedFiles = new HashMap<Path, Set<OneProperties>>();
+    private final Map<Path, WatchKey> watchedDirs = new HashMap<Path, WatchKey>();
+    private final Map<OneProperties, Path> configsFiles = new HashMap<OneProperties, Path>();
+
+    private volatile boolean running = true;
+
+    ConfigWatcher(long debounceMillis) throws IOException {
+        this.watchService = FileSystems.getDefault().newWatchService();
+        this.debounceMillis = debounceMillis;
+        this.thread = new Thread(this, "config-watcher");
+        this.thread.setDaemon(true);
+    }
+
+    void start() {
+        thread.start();
+    }
+
+    void stop() {
+        running = false;
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            LOGGER.warn("Close config watch service error!", e);
+        }
+        thread.interrupt();
+    }
+
+    /**
+     * Watch file of configs. If configs is not loaded from a file, do nothing.
+     * If configs is already watched with another file, watch new file instead.
+     * If configs is not loaded yet, load it first to know which file it come from.
+     */
+    synchronized void watch(OneProperties configs) {
+        configs.getSnapshot();
+        File configFile = configs.getConfigFile();
+        Path file = configFile == null ? null : configFile.toPath().toAbsolutePath().normalize();
+        Path oldFile = configsFiles.get(configs);
+        if (oldFile != null && oldFile.equals(file)) {
+            return;
+        }
+        unwatch(configs);
+        if (file == null) {
+            return;
+        }
+        Path dir = file.getParent();
+        if (!watchedDirs.containsKey(dir)) {
+            try {
+                watchedDirs.put(dir, dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE));
+            } catch (IOException e) {
+                LOGGER.warn("Watch config directory " + dir + " error!", e);
+                return;
+            }
+        }
+        Set<OneProperties> fileConfigs = watchedFiles.get(file);
+        if (fileConfigs == null) {
+            fileConfigs = new HashSet<OneProperties>();
+            watchedFiles.put(file, fileConfigs);
+        }
+        fileConfigs.add(configs);
+        configsFiles.put(configs, file);
+    }
+
+    /**
+     * Stop watch file of configs.
+     */
+    synchronized void unwatch(OneProperties configs) {
+        Path file = configsFiles.remove(configs);
+        if (file == null) {
+            return;
+        }
+        Set<OneProperties> fileConfigs = watchedFiles.get(file);
+        fileConfigs.remove(configs);
+        if (!fileConfigs.isEmpty()) {
+            return;
+        }
+        watchedFiles.remove(file);
+        Path dir = file.getParent();
+        for (Path watchedFile : watchedFiles.keySet()) {
+            if (watchedFile.getParent().equals(dir)) {
+                return;
+            }
+        }
+        WatchKey watchKey = watchedDirs.remove(dir);
+        if (watchKey != null) {
+            watchKey.cancel();
+        }
+    }
+
+    /**
+     * @return true if event is about a watched config file.
+     */
+    private synchronized boolean collectChanged(Path dir, WatchEvent<?> event, Set<OneProperties> changed) {
+        if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+            boolean found = false;
+            for (Map.Entry<Path, Set<OneProperties>> entry : watchedFiles.entrySet()) {
+                if (entry.getKey().getParent().equals(dir)) {
+                    found = true;
+                    changed.addAll(entry.getValue());
+                    for (OneProperties configs : entry.getValue()) {
+                        ResourceLocator.invalidate(configs.getPropertiesAbsoluteClassPath());
+                    }
+                }
+            }
+            return found;
+        }
+        Set<OneProperties> fileConfigs = watchedFiles.get(dir.resolve((Path) event.context()));
+        if (fileConfigs == null || fileConfigs.isEmpty()) { // other files in same directory, eg: logs.
+            return false;
+        }
+        changed.addAll(fileConfigs);
+        if (event.kind() != StandardWatchEventKinds.ENTRY_MODIFY) { // file created or deleted, find it again.
+            for (OneProperties configs : fileConfigs) {
+                ResourceLocator.invalidate(configs.getPropertiesAbsoluteClassPath());
+            }
+        }
+        return true;
+    }
+
+    public void run() {
+        Set<OneProperties> changed = new LinkedHashSet<OneProperties>();
+        long debounceNanos = TimeUnit.MILLISECONDS.toNanos(debounceMillis);
+        long firstChangeNanos = 0;
+        long lastChangeNanos = 0;
+        while (running) {
+            WatchKey watchKey;
+            try {
+                if (changed.isEmpty()) {
+                    watchKey = watchService.take();
+                } else {
+                    long waitNanos = Math.min(lastChangeNanos + debounceNanos,
+                            firstChangeNanos + debounceNanos * MAX_WAIT_DEBOUNCES) - System.nanoTime();
+                    watchKey = waitNanos <= 0 ? null : watchService.poll(waitNanos, TimeUnit.NANOSECONDS);
+                }
+            } catch (InterruptedException e) {
+                continue;
+            } catch (ClosedWatchServiceException e) {
+                break;
+            }
+            if (watchKey == null) { // no more config file events in debounce time, or waited too long, reload now.
+                reload(changed);
+                changed.clear();
+                continue;
+            }
+            Path dir = (Path) watchKey.watchable();
+            boolean wasEmpty = changed.isEmpty();
+            boolean configChanged = false;
+            for (WatchEvent<?> event : watchKey.pollEvents()) {
+                configChanged |= collectChanged(dir, event, changed);
+            }
+            watchKey.reset();
+            if (configChanged) { // only config file events delay reload.
+                lastChangeNanos = System.nanoTime();
+                if (wasEmpty) {
+                    firstChangeNanos = lastChangeNanos;
+                }
+            }
+        }
+    }
+
+    private void reload(Set<OneProperties> changed) {
+        for (OneProperties configs : changed) {
+            try {
+                configs.loadConfigs();
+                LOGGER.info("Reload config file " + configs.getConfigFile());
+            } catch (RuntimeException e) {
+                LOGGER.warn("Reload config file " + configs.getConfigFile() + " error!", e);
+            }
+        }
+    }
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ConfigWatcher.class);
+
+}
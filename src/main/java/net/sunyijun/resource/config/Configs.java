@@ -16,11 +16,19 @@
 package net.sunyijun.resource.config;
 
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import java.io.IOException;
 import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 
 /**
@@ -43,6 +51,14 @@ import java.util.concurrent.ConcurrentHashMap;
  * If current run as a jar(java -jar ....jar), find config in file system classpath first,
  * if not found, then get resource in jar.
  * </p>
+ * <p>
+ * Each config file is loaded at first access.
+ * To load all config files in parallel before use, call {@link #preload(String...)}.
+ * </p>
+ * <p>
+ * If there are too many self config files to keep all in memory, call {@link #setMaxSelfConfigs(int)},
+ * least recently used self configs are removed, and loaded again at next access.
+ * </p>
  *
  * @author yijun.sun
  * @since 0.0.1
@@ -57,6 +73,10 @@ public class Configs {
      * Default debug config file absolute class path: {@value}
      */
     public static final String DEFAULT_DEBUG_CONFIG_ABSOLUTE_CLASS_PATH = "/config/self.properties";
+    /**
+     * Default time to wait for more file events before reload: {@value} milliseconds.
+     */
+    public static final long DEFAULT_WATCH_DEBOUNCE_MILLIS = 500;
 
     private static final OneProperties VOID_CONFIGS = new OneProperties();
     private static String systemConfigAbsoluteClassPath = DEFAULT_SYSTEM_CONFIG_ABSOLUTE_CLASS_PATH;
@@ -64,9 +84,29 @@ public class Configs {
 
     private static OneProperties systemConfigs = new OneProperties();
     private static OneProperties debugConfigs = new OneProperties();
-    private static Map<String, OneProperties> otherConfigs = new ConcurrentHashMap<String, OneProperties>();
+    private static ConcurrentMap<String, OneProperties> otherConfigs = new ConcurrentHashMap<String, OneProperties>();
+    private static final SelfConfigsLru SELF_CONFIGS_LRU = new SelfConfigsLru();
+    /**
+     * Guard removing self configs for max count, against adding listeners and adding configs on purpose.
+     * Readers never lock it.
+     */
+    private static final Object EVICT_LOCK = new Object();
+    private static final AtomicBoolean EVICT_SCHEDULED = new AtomicBoolean();
+    private static final Runnable EVICT_TASK = new Runnable() {
+        public void run() {
+            EVICT_SCHEDULED.set(false);
+            evictSelfConfigs();
+        }
+    };
+
+    private static volatile ConfigWatcher configWatcher;
+    /**
+     * Write-behind settings for all configs, max delay less than 0 means disabled.
+     */
+    private static volatile long writeBehindDelayMillis = -1;
+    private static volatile int writeBehindBatchSize;
 
-    static {
+    static { // only set path, config file is loaded at first access.
         systemConfigs.initConfigs(systemConfigAbsoluteClassPath);
         debugConfigs.initConfigs(debugConfigAbsoluteClassPath);
     }
@@ -157,6 +197,117 @@ public class Configs {
         return systemConfigs.getDecimalConfig(keyPrefix, key);
     }
 
+    /**
+     * Get system config int value. Value is parsed only once.
+     *
+     * @param key          config key
+     * @param defaultValue value to return if not config
+     * @return config int value. Return defaultValue if not config in
+     * system config file "{@value #DEFAULT_SYSTEM_CONFIG_ABSOLUTE_CLASS_PATH}" or self define system config path.
+     * @throws NumberFormatException if config value is not an int.
+     * @see #setSystemConfigs(String, OneProperties)
+     */
+    public static int getSystemConfigInt(IConfigKey key, int defaultValue) {
+        return systemConfigs.getIntConfig(key, defaultValue);
+    }
+
+    /**
+     * Get system config int value. Config key include prefix.
+     * Example:<br>
+     * If key.getKeyString() is "test", <br>
+     * getSystemConfigInt("1.", key, 0); will return "1.test" config value in system config file.
+     *
+     * @param keyPrefix    config key prefix
+     * @param key          config key
+     * @param defaultValue value to return if not config
+     * @return config int value. Return defaultValue if not config in
+     * system config file "{@value #DEFAULT_SYSTEM_CONFIG_ABSOLUTE_CLASS_PATH}" or self define system config path.
+     * @throws NumberFormatException if config value is not an int.
+     * @see #setSystemConfigs(String, OneProperties)
+     */
+    public static int getSystemConfigInt(String keyPrefix, IConfigKey key, int defaultValue) {
+        return systemConfigs.getIntConfig(keyPrefix, key, defaultValue);
+    }
+
+    /**
+     * Get system config long value. Value is parsed only once.
+     *
+     * @param key          config key
+     * @param defaultValue value to return if not config
+     * @return config long value. Return defaultValue if not config in
+     * system config file "{@value #DEFAULT_SYSTEM_CONFIG_ABSOLUTE_CLASS_PATH}" or self define system config path.
+     * @throws NumberFormatException if config value is not a long.
+     * @see #setSystemConfigs(String, OneProperties)
+     */
+    public static long getSystemConfigLong(IConfigKey key, long defaultValue) {
+        return systemConfigs.getLongConfig(key, defaultValue);
+    }
+
+    /**
+     * Get system config long value. Config key include prefix.
+     * Example:<br>
+     * If key.getKeyString() is "test", <br>
+     * getSystemConfigLong("1.", key, 0); will return "1.test" config value in system config file.
+     *
+     * @param keyPrefix    config key prefix
+     * @param key          config key
+     * @param defaultValue value to return if not config
+     * @return config long value. Return defaultValue if not config in
+     * system config file "{@value #DEFAULT_SYSTEM_CONFIG_ABSOLUTE_CLASS_PATH}" or self define system config path.
+     * @throws NumberFormatException if config value is not a long.
+     * @see #setSystemConfigs(String, OneProperties)
+     */
+    public static long getSystemConfigLong(String keyPrefix, IConfigKey key, long defaultValue) {
+        return systemConfigs.getLongConfig(keyPrefix, key, defaultValue);
+    }
+
+    /**
+     * Get system config double value. Value is parsed only once.
+     *
+     * @param key          config key
+     * @param defaultValue value to return if not config
+     * @return config double value. Return defaultValue if not config in
+     * system config file "{@value #DEFAULT_SYSTEM_CONFIG_ABSOLUTE_CLASS_PATH}" or self define system config path.
+     * @throws NumberFormatException if config value is not a number.
+     * @see #setSystemConfigs(String, OneProperties)
+     */
+    public static double getSystemConfigDouble(IConfigKey key, double defaultValue) {
+        return systemConfigs.getDoubleConfig(key, defaultValue);
+    }
+
+    /**
+     * Get system config double value. Config key include prefix.
+     * Example:<br>
+     * If key.getKeyString() is "test", <br>
+     * getSystemConfigDouble("1.", key, 0); will return "1.test" config value in system config file.
+     *
+     * @param keyPrefix    config key prefix
+     * @param key          config key
+     * @param defaultValue value to return if not config
+     * @return config double value. Return defaultValue if not config in
+     * system config file "{@value #DEFAULT_SYSTEM_CONFIG_ABSOLUTE_CLASS_PATH}" or self define system config path.
+     * @throws NumberFormatException if config value is not a number.
+     * @see #setSystemConfigs(String, OneProperties)
+     */
+    public static double getSystemConfigDouble(String keyPrefix, IConfigKey key, double defaultValue) {
+        return systemConfigs.getDoubleConfig(keyPrefix, key, defaultValue);
+    }
+
+    /**
+     * <p>Get section of system configs, all keys in section include prefix.</p>
+     * Example:<br>
+     * If key.getKeyString() is "test", <br>
+     * getSystemConfigSection("1.").getConfig(key); will return "1.test" config value in system config file.<br>
+     * Section not concat prefix and key string every time, better than prefix methods when get config frequently.
+     *
+     * @param keyPrefix config key prefix
+     * @return section of system configs. If system configs object is changed by
+     * {@link #setSystemConfigs(String, OneProperties)}, must get section again.
+     */
+    public static ConfigSection getSystemConfigSection(String keyPrefix) {
+        return systemConfigs.view(keyPrefix);
+    }
+
     /**
      * Get debug config string.
      *
@@ -194,6 +345,60 @@ public class Configs {
         return debugConfigs.getDecimalConfig(key);
     }
 
+    /**
+     * Get debug config int value. Value is parsed only once.
+     *
+     * @param key          config key
+     * @param defaultValue value to return if not config
+     * @return config int value. Return defaultValue if not config in
+     * debug config file "{@value #DEFAULT_DEBUG_CONFIG_ABSOLUTE_CLASS_PATH}" or self define debug config path.
+     * @throws NumberFormatException if config value is not an int.
+     * @see #setDebugConfigs(OneProperties, String)
+     */
+    public static int getDebugConfigInt(IConfigKey key, int defaultValue) {
+        return debugConfigs.getIntConfig(key, defaultValue);
+    }
+
+    /**
+     * Get debug config long value. Value is parsed only once.
+     *
+     * @param key          config key
+     * @param defaultValue value to return if not config
+     * @return config long value. Return defaultValue if not config in
+     * debug config file "{@value #DEFAULT_DEBUG_CONFIG_ABSOLUTE_CLASS_PATH}" or self define debug config path.
+     * @throws NumberFormatException if config value is not a long.
+     * @see #setDebugConfigs(OneProperties, String)
+     */
+    public static long getDebugConfigLong(IConfigKey key, long defaultValue) {
+        return debugConfigs.getLongConfig(key, defaultValue);
+    }
+
+    /**
+     * Get debug config double value. Value is parsed only once.
+     *
+     * @param key          config key
+     * @param defaultValue value to return if not config
+     * @return config double value. Return defaultValue if not config in
+     * debug config file "{@value #DEFAULT_DEBUG_CONFIG_ABSOLUTE_CLASS_PATH}" or self define debug config path.
+     * @throws NumberFormatException if config value is not a number.
+     * @see #setDebugConfigs(OneProperties, String)
+     */
+    public static double getDebugConfigDouble(IConfigKey key, double defaultValue) {
+        return debugConfigs.getDoubleConfig(key, defaultValue);
+    }
+
+    /**
+     * Get section of debug configs, all keys in section include prefix.
+     *
+     * @param keyPrefix config key prefix
+     * @return section of debug configs. If debug configs object is changed by
+     * {@link #setDebugConfigs(OneProperties, String)}, must get section again.
+     * @see #getSystemConfigSection(String)
+     */
+    public static ConfigSection getDebugConfigSection(String keyPrefix) {
+        return debugConfigs.view(keyPrefix);
+    }
+
     /**
      * Get self config string.
      *
@@ -203,15 +408,7 @@ public class Configs {
      * @see #addSelfConfigs(String, OneProperties)
      */
     public static String getSelfConfig(String configAbsoluteClassPath, IConfigKey key) {
-        OneProperties configs = otherConfigs.get(configAbsoluteClassPath);
-        if (configs == null) {
-            addSelfConfigs(configAbsoluteClassPath, null);
-            configs = otherConfigs.get(configAbsoluteClassPath);
-            if (configs == null) {
-                return VOID_CONFIGS.getConfig(key);
-            }
-        }
-        return configs.getConfig(key);
+        return getOrAddSelfConfigs(configAbsoluteClassPath).getConfig(key);
     }
 
     /**
@@ -227,15 +424,7 @@ public class Configs {
      * @see #addSelfConfigs(String, OneProperties)
      */
     public static String getSelfConfig(String configAbsoluteClassPath, String keyPrefix, IConfigKey key) {
-        OneProperties configs = otherConfigs.get(configAbsoluteClassPath);
-        if (configs == null) {
-            addSelfConfigs(configAbsoluteClassPath, null);
-            configs = otherConfigs.get(configAbsoluteClassPath);
-            if (configs == null) {
-                return VOID_CONFIGS.getConfig(keyPrefix, key);
-            }
-        }
-        return configs.getConfig(keyPrefix, key);
+        return getOrAddSelfConfigs(configAbsoluteClassPath).getConfig(keyPrefix, key);
     }
 
     /**
@@ -247,15 +436,7 @@ public class Configs {
      * @see #addSelfConfigs(String, OneProperties)
      */
     public static boolean isSelfConfig(String configAbsoluteClassPath, IConfigKey key) {
-        OneProperties configs = otherConfigs.get(configAbsoluteClassPath);
-        if (configs == null) {
-            addSelfConfigs(configAbsoluteClassPath, null);
-            configs = otherConfigs.get(configAbsoluteClassPath);
-            if (configs == null) {
-                return VOID_CONFIGS.isConfigTrue(key);
-            }
-        }
-        return configs.isConfigTrue(key);
+        return getOrAddSelfConfigs(configAbsoluteClassPath).isConfigTrue(key);
     }
 
     /**
@@ -271,15 +452,7 @@ public class Configs {
      * @see #addSelfConfigs(String, OneProperties)
      */
     public static boolean isSelfConfig(String configAbsoluteClassPath, String keyPrefix, IConfigKey key) {
-        OneProperties configs = otherConfigs.get(configAbsoluteClassPath);
-        if (configs == null) {
-            addSelfConfigs(configAbsoluteClassPath, null);
-            configs = otherConfigs.get(configAbsoluteClassPath);
-            if (configs == null) {
-                return VOID_CONFIGS.isConfigTrue(keyPrefix, key);
-            }
-        }
-        return configs.isConfigTrue(keyPrefix, key);
+        return getOrAddSelfConfigs(configAbsoluteClassPath).isConfigTrue(keyPrefix, key);
     }
 
     /**
@@ -291,15 +464,7 @@ public class Configs {
      * @see #addSelfConfigs(String, OneProperties)
      */
     public static BigDecimal getSelfConfigDecimal(String configAbsoluteClassPath, IConfigKey key) {
-        OneProperties configs = otherConfigs.get(configAbsoluteClassPath);
-        if (configs == null) {
-            addSelfConfigs(configAbsoluteClassPath, null);
-            configs = otherConfigs.get(configAbsoluteClassPath);
-            if (configs == null) {
-                return VOID_CONFIGS.getDecimalConfig(key);
-            }
-        }
-        return configs.getDecimalConfig(key);
+        return getOrAddSelfConfigs(configAbsoluteClassPath).getDecimalConfig(key);
     }
 
     /**
@@ -315,15 +480,65 @@ public class Configs {
      * @see #addSelfConfigs(String, OneProperties)
      */
     public static BigDecimal getSelfConfigDecimal(String configAbsoluteClassPath, String keyPrefix, IConfigKey key) {
-        OneProperties configs = otherConfigs.get(configAbsoluteClassPath);
-        if (configs == null) {
-            addSelfConfigs(configAbsoluteClassPath, null);
-            configs = otherConfigs.get(configAbsoluteClassPath);
-            if (configs == null) {
-                return VOID_CONFIGS.getDecimalConfig(keyPrefix, key);
-            }
-        }
-        return configs.getDecimalConfig(keyPrefix, key);
+        return getOrAddSelfConfigs(configAbsoluteClassPath).getDecimalConfig(keyPrefix, key);
+    }
+
+    /**
+     * Get self config int value. Value is parsed only once.
+     *
+     * @param configAbsoluteClassPath config path.
+     * @param key                     config key in configAbsoluteClassPath config file
+     * @param defaultValue            value to return if not config
+     * @return config int value. Return defaultValue if not add config file or not config in config file.
+     * @throws NumberFormatException if config value is not an int.
+     * @see #addSelfConfigs(String, OneProperties)
+     */
+    public static int getSelfConfigInt(String configAbsoluteClassPath, IConfigKey key, int defaultValue) {
+        return getOrAddSelfConfigs(configAbsoluteClassPath).getIntConfig(key, defaultValue);
+    }
+
+    /**
+     * Get self config long value. Value is parsed only once.
+     *
+     * @param configAbsoluteClassPath config path.
+     * @param key                     config key in configAbsoluteClassPath config file
+     * @param defaultValue            value to return if not config
+     * @return config long value. Return defaultValue if not add config file or not config in config file.
+     * @throws NumberFormatException if config value is not a long.
+     * @see #addSelfConfigs(String, OneProperties)
+     */
+    public static long getSelfConfigLong(String configAbsoluteClassPath, IConfigKey key, long defaultValue) {
+        return getOrAddSelfConfigs(configAbsoluteClassPath).getLongConfig(key, defaultValue);
+    }
+
+    /**
+     * Get self config double value. Value is parsed only once.
+     *
+     * @param configAbsoluteClassPath config path.
+     * @param key                     config key in configAbsoluteClassPath config file
+     * @param defaultValue            value to return if not config
+     * @return config double value. Return defaultValue if not add config file or not config in config file.
+     * @throws NumberFormatException if config value is not a number.
+     * @see #addSelfConfigs(String, OneProperties)
+     */
+    public static double getSelfConfigDouble(String configAbsoluteClassPath, IConfigKey key, double defaultValue) {
+        return getOrAddSelfConfigs(configAbsoluteClassPath).getDoubleConfig(key, defaultValue);
+    }
+
+    /**
+     * Get section of self configs, all keys in section include prefix.
+     * Example:<br>
+     * If key.getKeyString() is "test", <br>
+     * getSelfConfigSection("/self.properties", "1.").getConfig(key);
+     * will return "1.test" config value in "/self.properties".
+     *
+     * @param configAbsoluteClassPath config path.
+     * @param keyPrefix               config key prefix
+     * @return section of self configs. If not add config file, all configs in section are not config.
+     * @see #addSelfConfigs(String, OneProperties)
+     */
+    public static ConfigSection getSelfConfigSection(String configAbsoluteClassPath, String keyPrefix) {
+        return getOrAddSelfConfigs(configAbsoluteClassPath).view(keyPrefix);
     }
 
     /**
@@ -413,6 +628,48 @@ public class Configs {
         return getSelfConfigDecimal(configAbsoluteClassPath, keyPrefix, key);
     }
 
+    /**
+     * Get self config int value. Value is parsed only once.
+     *
+     * @param key          config key with configAbsoluteClassPath in config file
+     * @param defaultValue value to return if not config
+     * @return config int value. Return defaultValue if not add config file or not config in config file.
+     * @throws NumberFormatException if config value is not an int.
+     * @see #addSelfConfigs(String, OneProperties)
+     */
+    public static int getHavePathSelfConfigInt(IConfigKeyWithPath key, int defaultValue) {
+        String configAbsoluteClassPath = key.getConfigPath();
+        return getSelfConfigInt(configAbsoluteClassPath, key, defaultValue);
+    }
+
+    /**
+     * Get self config long value. Value is parsed only once.
+     *
+     * @param key          config key with configAbsoluteClassPath in config file
+     * @param defaultValue value to return if not config
+     * @return config long value. Return defaultValue if not add config file or not config in config file.
+     * @throws NumberFormatException if config value is not a long.
+     * @see #addSelfConfigs(String, OneProperties)
+     */
+    public static long getHavePathSelfConfigLong(IConfigKeyWithPath key, long defaultValue) {
+        String configAbsoluteClassPath = key.getConfigPath();
+        return getSelfConfigLong(configAbsoluteClassPath, key, defaultValue);
+    }
+
+    /**
+     * Get self config double value. Value is parsed only once.
+     *
+     * @param key          config key with configAbsoluteClassPath in config file
+     * @param defaultValue value to return if not config
+     * @return config double value. Return defaultValue if not add config file or not config in config file.
+     * @throws NumberFormatException if config value is not a number.
+     * @see #addSelfConfigs(String, OneProperties)
+     */
+    public static double getHavePathSelfConfigDouble(IConfigKeyWithPath key, double defaultValue) {
+        String configAbsoluteClassPath = key.getConfigPath();
+        return getSelfConfigDouble(configAbsoluteClassPath, key, defaultValue);
+    }
+
     /**
      * Modify system configs.
      *
@@ -468,7 +725,7 @@ public class Configs {
      */
     public static void modifySelfConfig(String configAbsoluteClassPath, Map<IConfigKey, String> modifyConfig)
             throws IOException {
-        OneProperties configs = otherConfigs.get(configAbsoluteClassPath);
+        OneProperties configs = getAddedSelfConfigs(configAbsoluteClassPath);
         if (configs == null) {
             return;
         }
@@ -485,7 +742,7 @@ public class Configs {
      */
     public static void modifySelfConfig(String configAbsoluteClassPath, IConfigKey key, String value)
             throws IOException {
-        OneProperties configs = otherConfigs.get(configAbsoluteClassPath);
+        OneProperties configs = getAddedSelfConfigs(configAbsoluteClassPath);
         if (configs == null) {
             return;
         }
@@ -506,7 +763,7 @@ public class Configs {
      */
     public static void modifySelfConfig(String configAbsoluteClassPath, String keyPrefix, IConfigKey key, String value)
             throws IOException {
-        OneProperties configs = otherConfigs.get(configAbsoluteClassPath);
+        OneProperties configs = getAddedSelfConfigs(configAbsoluteClassPath);
         if (configs == null) {
             return;
         }
@@ -523,21 +780,28 @@ public class Configs {
      * @param configsObj              self class extends {@link OneProperties}.
      *                                Can be null, if null means not use self class.
      * @see OneProperties
+     * @see #setMaxSelfConfigs(int)
      */
     public static void addSelfConfigs(String configAbsoluteClassPath, OneProperties configsObj) {
         if (configAbsoluteClassPath == null) {
             return;
         }
-        if (configsObj == null) {
-            OneProperties configs = otherConfigs.get(configAbsoluteClassPath);
-            if (configs == null) {
-                configsObj = new OneProperties();
-            } else {
-                configsObj = configs;
+        OneProperties oldConfigs;
+        synchronized (EVICT_LOCK) { // not removed between get and put.
+            SELF_CONFIGS_LRU.markAdded(configAbsoluteClassPath); // added on purpose, never remove.
+            SELF_CONFIGS_LRU.unmarkEvicted(configAbsoluteClassPath);
+            if (configsObj == null) {
+                OneProperties configs = otherConfigs.get(configAbsoluteClassPath);
+                if (configs == null) {
+                    configsObj = new OneProperties();
+                } else {
+                    configsObj = configs;
+                }
             }
+            configsObj.initConfigs(configAbsoluteClassPath);
+            oldConfigs = otherConfigs.put(configAbsoluteClassPath, configsObj);
         }
-        configsObj.initConfigs(configAbsoluteClassPath);
-        otherConfigs.put(configAbsoluteClassPath, configsObj);
+        changeConfigs(oldConfigs, configsObj);
     }
 
     /**
@@ -559,7 +823,7 @@ public class Configs {
             configKeys.put(configKeyWithPath, modifyConfig.get(configKeyWithPath));
         }
         for (String configAbsoluteClassPath : configPaths.keySet()) {
-            OneProperties configs = otherConfigs.get(configAbsoluteClassPath);
+            OneProperties configs = getAddedSelfConfigs(configAbsoluteClassPath);
             if (configs == null) {
                 return;
             }
@@ -576,7 +840,7 @@ public class Configs {
      */
     public static void modifyHavePathSelfConfig(IConfigKeyWithPath key, String value) throws IOException {
         String configAbsoluteClassPath = key.getConfigPath();
-        OneProperties configs = otherConfigs.get(configAbsoluteClassPath);
+        OneProperties configs = getAddedSelfConfigs(configAbsoluteClassPath);
         if (configs == null) {
             return;
         }
@@ -598,7 +862,7 @@ public class Configs {
     public static void modifyHavePathSelfConfig(String keyPrefix, IConfigKeyWithPath key, String value)
             throws IOException {
         String configAbsoluteClassPath = key.getConfigPath();
-        OneProperties configs = otherConfigs.get(configAbsoluteClassPath);
+        OneProperties configs = getAddedSelfConfigs(configAbsoluteClassPath);
         if (configs == null) {
             return;
         }
@@ -617,6 +881,7 @@ public class Configs {
      * @see OneProperties
      */
     public static void setSystemConfigs(String systemConfigAbsoluteClassPath, OneProperties systemConfigsObj) {
+        OneProperties oldConfigs = Configs.systemConfigs;
         if (systemConfigsObj != null) {
             Configs.systemConfigs = systemConfigsObj;
         }
@@ -626,6 +891,7 @@ public class Configs {
         } else if (systemConfigsObj != null) { // use new systemConfigs, need initConfigs.
             Configs.systemConfigs.initConfigs(Configs.systemConfigAbsoluteClassPath);
         }
+        changeConfigs(oldConfigs, Configs.systemConfigs);
     }
 
     /**
@@ -639,6 +905,7 @@ public class Configs {
      * @see OneProperties
      */
     public static void setDebugConfigs(OneProperties debugConfigsObj, String debugConfigAbsoluteClassPath) {
+        OneProperties oldConfigs = Configs.debugConfigs;
         if (debugConfigsObj != null) {
             Configs.debugConfigs = debugConfigsObj;
         }
@@ -648,6 +915,482 @@ public class Configs {
         } else if (debugConfigs != null) { // use new systemConfigs, need initConfigs.
             Configs.debugConfigs.initConfigs(Configs.debugConfigAbsoluteClassPath);
         }
+        changeConfigs(oldConfigs, Configs.debugConfigs);
     }
 
+    /**
+     * <p>Load system configs, debug configs, all added self configs and self configs of paths, in parallel.</p>
+     * Loading is done in background threads, return at once.
+     * Configs already loaded will not load again. Get config before loaded will wait for loading.
+     *
+     * @param configAbsoluteClassPaths self configs paths to add and load, same as
+     *                                 {@link #addSelfConfigs(String, OneProperties)} with null configsObj.
+     * @return future done after all configs loaded. If some config file load failed, get() throw the error.
+     */
+    public static Future<Void> preload(String... configAbsoluteClassPaths) {
+        for (String configAbsoluteClassPath : configAbsoluteClassPaths) {
+            if (configAbsoluteClassPath != null) {
+                getOrAddSelfConfigs(configAbsoluteClassPath);
+            }
+        }
+        return ConfigPreloader.preload(allConfigs());
+    }
+
+    /**
+     * <p>Add listener for one system config key.</p>
+     * After system configs reload or modify, if value of key changed, listener will be notified in background thread.
+     *
+     * @param key      config key to listen
+     * @param listener listener to notify
+     * @see IConfigChangeListener
+     */
+    public static void addSystemConfigListener(IConfigKey key, IConfigChangeListener listener) {
+        systemConfigs.addChangeListener(key, listener);
+    }
+
+    /**
+     * <p>Add listener for all system config keys in enum class.</p>
+     * After system configs reload or modify, listener will be notified for each key which value changed.
+     *
+     * @param keyClass enum class of config keys to listen
+     * @param listener listener to notify
+     * @throws IllegalArgumentException if keyClass is not an enum.
+     * @see IConfigChangeListener
+     */
+    public static void addSystemConfigListener(Class<? extends IConfigKey> keyClass, IConfigChangeListener listener) {
+        systemConfigs.addChangeListener(keyClass, listener);
+    }
+
+    /**
+     * Remove listener of system configs.
+     *
+     * @param listener listener to remove
+     * @return true if listener is removed, false if listener not added.
+     */
+    public static boolean removeSystemConfigListener(IConfigChangeListener listener) {
+        return systemConfigs.removeChangeListener(listener);
+    }
+
+    /**
+     * Add listener for one debug config key.
+     *
+     * @param key      config key to listen
+     * @param listener listener to notify
+     * @see #addSystemConfigListener(IConfigKey, IConfigChangeListener)
+     */
+    public static void addDebugConfigListener(IConfigKey key, IConfigChangeListener listener) {
+        debugConfigs.addChangeListener(key, listener);
+    }
+
+    /**
+     * Add listener for all debug config keys in enum class.
+     *
+     * @param keyClass enum class of config keys to listen
+     * @param listener listener to notify
+     * @throws IllegalArgumentException if keyClass is not an enum.
+     * @see #addSystemConfigListener(Class, IConfigChangeListener)
+     */
+    public static void addDebugConfigListener(Class<? extends IConfigKey> keyClass, IConfigChangeListener listener) {
+        debugConfigs.addChangeListener(keyClass, listener);
+    }
+
+    /**
+     * Remove listener of debug configs.
+     *
+     * @param listener listener to remove
+     * @return true if listener is removed, false if listener not added.
+     */
+    public static boolean removeDebugConfigListener(IConfigChangeListener listener) {
+        return debugConfigs.removeChangeListener(listener);
+    }
+
+    /**
+     * Add listener for one self config key. If config file not added, add it first.
+     * Configs with listener is never removed by {@link #setMaxSelfConfigs(int)}.
+     *
+     * @param configAbsoluteClassPath config path.
+     * @param key                     config key to listen
+     * @param listener                listener to notify
+     * @see #addSystemConfigListener(IConfigKey, IConfigChangeListener)
+     */
+    public static void addSelfConfigListener(String configAbsoluteClassPath, IConfigKey key,
+                                             IConfigChangeListener listener) {
+        synchronized (EVICT_LOCK) { // not removed before listener added.
+            OneProperties configs = getOrAddSelfConfigs(configAbsoluteClassPath);
+            if (configs != null) {
+                configs.addChangeListener(key, listener);
+            }
+        }
+    }
+
+    /**
+     * Add listener for all self config keys in enum class. If config file not added, add it first.
+     * Configs with listener is never removed by {@link #setMaxSelfConfigs(int)}.
+     *
+     * @param configAbsoluteClassPath config path.
+     * @param keyClass                enum class of config keys to listen
+     * @param listener                listener to notify
+     * @throws IllegalArgumentException if keyClass is not an enum.
+     * @see #addSystemConfigListener(Class, IConfigChangeListener)
+     */
+    public static void addSelfConfigListener(String configAbsoluteClassPath, Class<? extends IConfigKey> keyClass,
+                                             IConfigChangeListener listener) {
+        synchronized (EVICT_LOCK) { // not removed before listener added.
+            OneProperties configs = getOrAddSelfConfigs(configAbsoluteClassPath);
+            if (configs != null) {
+                configs.addChangeListener(keyClass, listener);
+            }
+        }
+    }
+
+    /**
+     * Add listener for one self config key, config file is {@linkplain IConfigKeyWithPath#getConfigPath() path}
+     * set in key.
+     *
+     * @param key      config key with configAbsoluteClassPath to listen
+     * @param listener listener to notify
+     * @see #addSystemConfigListener(IConfigKey, IConfigChangeListener)
+     */
+    public static void addHavePathSelfConfigListener(IConfigKeyWithPath key, IConfigChangeListener listener) {
+        addSelfConfigListener(key.getConfigPath(), key, listener);
+    }
+
+    /**
+     * Remove listener of self configs.
+     * If no listener left, configs can be removed by {@link #setMaxSelfConfigs(int)} again.
+     *
+     * @param configAbsoluteClassPath config path.
+     * @param listener                listener to remove
+     * @return true if listener is removed, false if listener not added.
+     */
+    public static boolean removeSelfConfigListener(String configAbsoluteClassPath, IConfigChangeListener listener) {
+        OneProperties configs = otherConfigs.get(configAbsoluteClassPath);
+        if (configs == null || !configs.removeChangeListener(listener)) {
+            return false;
+        }
+        if (configs.getListeners().isEmpty() && SELF_CONFIGS_LRU.getMaxCount() > 0) {
+            scheduleEvictSelfConfigs();
+        }
+        return true;
+    }
+
+    /**
+     * <p>Set max count of self configs in memory.</p>
+     * When over max count, least recently used self configs is removed:
+     * not written modifies are written, and file is not watched any more.
+     * At next access, it is added and loaded again, modify it is also same as before.
+     * Remove is done in background writer thread, so count may be over max count for a short time,
+     * and if write not written modifies failed, configs is kept and tried again next time.<br>
+     * System configs, debug configs, configs added by {@link #addSelfConfigs(String, OneProperties)}
+     * and configs with listeners are never removed, and not counted.
+     *
+     * @param maxCount max count of self configs, 0 or less means no limit. Default is no limit.
+     */
+    public static void setMaxSelfConfigs(int maxCount) {
+        SELF_CONFIGS_LRU.setMaxCount(maxCount);
+        if (maxCount > 0) { // self configs added before also counted.
+            for (String configAbsoluteClassPath : otherConfigs.keySet()) {
+                SELF_CONFIGS_LRU.touch(configAbsoluteClassPath);
+            }
+            scheduleEvictSelfConfigs();
+        }
+    }
+
+    /**
+     * <p>Set durability of all config files when written by modify.</p>
+     * Default is {@link StoreDurability#FSYNC_FILE}.
+     *
+     * @param durability durability when write config files.
+     * @see StoreDurability
+     */
+    public static void setStoreDurability(StoreDurability durability) {
+        if (durability == null) {
+            throw new IllegalArgumentException("Store durability can't be null.");
+        }
+        PropertiesIO.setDurability(durability);
+    }
+
+    /**
+     * <p>Enable write-behind mode for all configs, include configs added later.</p>
+     * In write-behind mode, modify configs only change configs in memory at once,
+     * modifies from many threads are merged and written into config file once,
+     * after maxDelayMillis from first modify, or when modified keys of one file reach maxBatchSize.<br>
+     * Use {@link #flushConfigs()} to write immediately. When JVM shutdown, not written modifies are also written.
+     *
+     * @param maxDelayMillis max time to delay write after first modify, in milliseconds.
+     * @param maxBatchSize   max modified keys count of one file to delay write.
+     * @throws IllegalArgumentException if maxDelayMillis is negative, or maxBatchSize is not positive.
+     * @see #disableWriteBehind()
+     */
+    public static synchronized void enableWriteBehind(long maxDelayMillis, int maxBatchSize) {
+        OneProperties.checkWriteBehind(maxDelayMillis, maxBatchSize);
+        writeBehindBatchSize = maxBatchSize; // before delay, whoever see the delay also see the batch size.
+        writeBehindDelayMillis = maxDelayMillis;
+        systemConfigs.enableWriteBehind(maxDelayMillis, maxBatchSize);
+        debugConfigs.enableWriteBehind(maxDelayMillis, maxBatchSize);
+        for (OneProperties configs : otherConfigs.values()) {
+            configs.enableWriteBehind(maxDelayMillis, maxBatchSize);
+        }
+    }
+
+    /**
+     * Write all not written modifies, and disable write-behind mode, modify will write file immediately.
+     *
+     * @throws IOException if write some file failed.
+     */
+    public static synchronized void disableWriteBehind() throws IOException {
+        writeBehindDelayMillis = -1;
+        IOException exception = null;
+        for (OneProperties configs : allConfigs()) {
+            try {
+                configs.disableWriteBehind();
+            } catch (IOException e) {
+                exception = e;
+            }
+        }
+        if (exception != null) {
+            throw exception;
+        }
+    }
+
+    /**
+     * Write all not written modifies into config files, in write-behind mode.
+     *
+     * @throws IOException if write some file failed, other files are still written.
+     * @see #enableWriteBehind(long, int)
+     */
+    public static void flushConfigs() throws IOException {
+        IOException exception = null;
+        for (OneProperties configs : allConfigs()) {
+            try {
+                configs.flush();
+            } catch (IOException e) {
+                exception = e;
+            }
+        }
+        if (exception != null) {
+            throw exception;
+        }
+    }
+
+    private static List<OneProperties> allConfigs() {
+        List<OneProperties> allConfigs = new ArrayList<OneProperties>(otherConfigs.size() + 2);
+        allConfigs.add(systemConfigs);
+        allConfigs.add(debugConfigs);
+        allConfigs.addAll(otherConfigs.values());
+        return allConfigs;
+    }
+
+    /**
+     * <p>Start watch all config files in file system, use default debounce time
+     * {@value #DEFAULT_WATCH_DEBOUNCE_MILLIS} milliseconds.</p>
+     *
+     * @throws IOException if can't create watch service.
+     * @see #startWatchConfigs(long)
+     */
+    public static void startWatchConfigs() throws IOException {
+        startWatchConfigs(DEFAULT_WATCH_DEBOUNCE_MILLIS);
+    }
+
+    /**
+     * <p>Start watch all config files in file system, reload configs when file changed.</p>
+     * Watch system configs, debug configs and all self configs, also configs added after start watch.
+     * Config which is resource in jar will not be watched.<br>
+     * One background thread watch all files, after no more change in debounceMillis, reload changed configs.
+     * If already started, do nothing.
+     *
+     * @param debounceMillis time to wait for more file events before reload, in milliseconds.
+     * @throws IOException if can't create watch service.
+     * @see #stopWatchConfigs()
+     */
+    public static synchronized void startWatchConfigs(long debounceMillis) throws IOException {
+        if (configWatcher != null) {
+            return;
+        }
+        ConfigWatcher watcher = new ConfigWatcher(debounceMillis);
+        watcher.watch(systemConfigs);
+        watcher.watch(debugConfigs);
+        for (OneProperties configs : otherConfigs.values()) {
+            watcher.watch(configs);
+        }
+        watcher.start();
+        configWatcher = watcher;
+    }
+
+    /**
+     * Stop watch config files. If not started, do nothing.
+     */
+    public static synchronized void stopWatchConfigs() {
+        if (configWatcher == null) {
+            return;
+        }
+        configWatcher.stop();
+        configWatcher = null;
+    }
+
+    /**
+     * <p>Get self configs of path, if not added, add it.</p>
+     * If many threads get a path not added at same time, only one configs is added and shared by all threads,
+     * and config file is loaded only once when first access.
+     */
+    private static OneProperties getOrAddSelfConfigs(String configAbsoluteClassPath) {
+        if (configAbsoluteClassPath == null) {
+            return VOID_CONFIGS;
+        }
+        boolean limited = SELF_CONFIGS_LRU.getMaxCount() > 0;
+        if (limited) {
+            SELF_CONFIGS_LRU.touch(configAbsoluteClassPath);
+        }
+        OneProperties configs = otherConfigs.get(configAbsoluteClassPath);
+        if (configs != null) {
+            return configs;
+        }
+        OneProperties newConfigs = new OneProperties();
+        newConfigs.initConfigs(configAbsoluteClassPath);
+        configs = otherConfigs.putIfAbsent(configAbsoluteClassPath, newConfigs);
+        if (configs != null) { // another thread added first, use that one.
+            return configs;
+        }
+        SELF_CONFIGS_LRU.unmarkEvicted(configAbsoluteClassPath);
+        changeConfigs(null, newConfigs);
+        if (limited) {
+            scheduleEvictSelfConfigs();
+        }
+        return newConfigs;
+    }
+
+    /**
+     * @return self configs of path if added, also add again if it was removed for max count. Else null.
+     */
+    private static OneProperties getAddedSelfConfigs(String configAbsoluteClassPath) {
+        OneProperties configs = otherConfigs.get(configAbsoluteClassPath);
+        if (configs == null) {
+            return SELF_CONFIGS_LRU.isEvicted(configAbsoluteClassPath)
+                    ? getOrAddSelfConfigs(configAbsoluteClassPath) : null;
+        }
+        if (SELF_CONFIGS_LRU.getMaxCount() > 0) {
+            SELF_CONFIGS_LRU.touch(configAbsoluteClassPath);
+        }
+        return configs;
+    }
+
+    /**
+     * Remove self configs over max count in background writer thread, not block readers with file IO.
+     * Many requests before it run are merged into one.
+     */
+    private static void scheduleEvictSelfConfigs() {
+        if (EVICT_SCHEDULED.compareAndSet(false, true)) {
+            OneProperties.executeInWriter(EVICT_TASK);
+        }
+    }
+
+    /**
+     * Remove least recently used self configs over max count. Configs with listeners are not counted.
+     */
+    private static void evictSelfConfigs() {
+        int maxCount = SELF_CONFIGS_LRU.getMaxCount();
+        if (maxCount <= 0) {
+            return;
+        }
+        List<String> counted = new ArrayList<String>();
+        for (String configAbsoluteClassPath : SELF_CONFIGS_LRU.getPathsByAccess()) {
+            OneProperties configs = otherConfigs.get(configAbsoluteClassPath);
+            if (configs == null) { // already removed.
+                SELF_CONFIGS_LRU.remove(configAbsoluteClassPath);
+            } else if (configs.getListeners().isEmpty()) {
+                counted.add(configAbsoluteClassPath);
+            }
+        }
+        for (int i = 0; i < counted.size() - maxCount; i++) {
+            evictSelfConfigs(counted.get(i));
+        }
+    }
+
+    /**
+     * <p>Remove self configs, write not written modifies and stop watch. Next access will add and load again.</p>
+     * Modifies are written before remove, if write failed, configs is kept, so modifies are never lost.
+     */
+    private static void evictSelfConfigs(String configAbsoluteClassPath) {
+        OneProperties configs = otherConfigs.get(configAbsoluteClassPath);
+        if (configs == null) {
+            return;
+        }
+        try {
+            configs.flush();
+        } catch (IOException e) {
+            LOGGER.warn("Write configs " + configAbsoluteClassPath + " error! Keep it in memory.", e);
+            return;
+        }
+        synchronized (EVICT_LOCK) {
+            if (SELF_CONFIGS_LRU.isAdded(configAbsoluteClassPath) || !configs.getListeners().isEmpty()) {
+                return;
+            }
+            SELF_CONFIGS_LRU.markEvicted(configAbsoluteClassPath); // before remove, modify in the meantime adds again.
+            if (!otherConfigs.remove(configAbsoluteClassPath, configs)) {
+                return;
+            }
+        }
+        try {
+            configs.disableWriteBehind(); // modified after flush by someone still hold it.
+        } catch (IOException e) {
+            keepEvictedSelfConfigs(configAbsoluteClassPath, configs, e);
+            return;
+        }
+        ConfigWatcher watcher = configWatcher;
+        if (watcher != null) {
+            watcher.unwatch(configs);
+        }
+        LOGGER.debug("Remove self configs " + configAbsoluteClassPath + " for max count "
+                + SELF_CONFIGS_LRU.getMaxCount());
+    }
+
+    /**
+     * Write removed configs failed, put it back with its not written modifies.
+     */
+    private static void keepEvictedSelfConfigs(String configAbsoluteClassPath, OneProperties configs, IOException e) {
+        long delayMillis = writeBehindDelayMillis;
+        if (delayMillis >= 0) {
+            configs.enableWriteBehind(delayMillis, writeBehindBatchSize);
+        }
+        if (otherConfigs.putIfAbsent(configAbsoluteClassPath, configs) == null) {
+            SELF_CONFIGS_LRU.unmarkEvicted(configAbsoluteClassPath);
+            SELF_CONFIGS_LRU.touch(configAbsoluteClassPath);
+            LOGGER.warn("Write configs " + configAbsoluteClassPath + " error! Keep it in memory.", e);
+        } else { // already added again and loaded from file.
+            LOGGER.error("Write removed configs " + configAbsoluteClassPath + " error! Modifies are lost.", e);
+        }
+    }
+
+    /**
+     * <p>If configs object replaced, keep listeners of old one and write not written modifies of old one.</p>
+     * If watching config files or in write-behind mode, also apply to new one.
+     */
+    private static void changeConfigs(OneProperties oldConfigs, OneProperties newConfigs) {
+        long delayMillis = writeBehindDelayMillis;
+        if (delayMillis >= 0) {
+            newConfigs.enableWriteBehind(delayMillis, writeBehindBatchSize);
+        }
+        boolean replaced = oldConfigs != null && oldConfigs != newConfigs;
+        ConfigWatcher watcher = configWatcher;
+        if (replaced) {
+            try {
+                oldConfigs.disableWriteBehind();
+            } catch (IOException e) {
+                LOGGER.warn("Write replaced configs error!", e);
+            }
+            newConfigs.getListeners().addAll(oldConfigs.getListeners());
+            if (oldConfigs.isLoaded()) { // if old one never loaded, no value changed for anyone.
+                newConfigs.getListeners().fireChanges(oldConfigs.getSnapshot(), newConfigs.getSnapshot());
+            }
+            if (watcher != null) {
+                watcher.unwatch(oldConfigs);
+            }
+        }
+        if (watcher != null) {
+            watcher.watch(newConfigs);
+        }
+    }
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(Configs.class);
+
 }
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2015 yijun.sun
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.sunyijun.resource.config;
+
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+/**
+ * <p>Values of enum keys, for each enum class an array indexed by ordinal.</p>
+ * Each enum class get a slot number once, so find array of an enum class is only an array index,
+ * no need to hash the class.
+ *
+ * @author yijun.sun
+ * @since 0.0.8
+ */
+final class EnumValuesTable {
+
+    private static final AtomicInteger NEXT_SLOT = new AtomicInteger();
+    private static final ClassValue<Integer> SLOTS = new ClassValue<Integer>() {
+        @Override
+        protected Integer computeValue(Class<?> type) {
+            return NEXT_SLOT.getAndIncrement();
+        }
+    };
+
+    /**
+     * Index is slot of enum class. Copy on write, readers not lock.
+     */
+    private volatile ConfigValue[][] values = new ConfigValue[NEXT_SLOT.get()][];
+
+    /**
+     * @return values of enum class, index is ordinal. Null if not put.
+     */
+    ConfigValue[] get(Class<?> enumClass) {
+        int slot = SLOTS.get(enumClass);
+        ConfigValue[][] all = values;
+        return slot < all.length ? all[slot] : null;
+    }
+
+    synchronized void put(Class<?> enumClass, ConfigValue[] enumValues) {
+        int slot = SLOTS.get(enumClass);
+        ConfigValue[][] all = values;
+        ConfigValue[][] newValues = new ConfigValue[Math.max(all.length, slot + 1)][];
+        System.arraycopy(all, 0, newValues, 0, all.length);
+        newValues[slot] = enumValues;
+        values = newValues;
+    }
+
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright 2015 yijun.sun
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.sunyijun.resource.config;
+
+/**
+ * <p>Listener for config value changes.</p>
+ * After configs reload or modify, listener is notified only for keys which value really changed.
+ * Listeners are called in a background thread one by one, not in the thread that reload or modify configs.
+ *
+ * @author yijun.sun
+ * @see Configs#addSystemConfigListener(IConfigKey, IConfigChangeListener)
+ * @since 0.0.8
+ */
+public interface IConfigChangeListener {
+
+    /**
+     * Called when value of key changed.
+     *
+     * @param key      changed config key
+     * @param oldValue value before change, include default value. Null if not config before.
+     * @param newValue value after change, include default value. Null if not config now.
+     */
+    void configChanged(IConfigKey key, String oldValue, String newValue);
+
+}
@@ -16,15 +16,24 @@
 package net.sunyijun.resource.config;
 
 
-import net.sunyijun.resource.ClassPathUtil;
+import net.sunyijun.resource.ResourceLocator;
 import net.sunyijun.resource.ResourceUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.*;
 import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
-import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 
 
 /**
@@ -35,78 +44,146 @@ import java.util.Properties;
  */
 public class OneProperties {
 
-    private static final String TRUE = "true";
+    /**
+     * Retry delay after write failed in write-behind mode, doubled after each failure, not less than max delay.
+     */
+    private static final long MIN_RETRY_DELAY_MILLIS = 1000;
+    private static final long MAX_RETRY_DELAY_MILLIS = 60 * 1000;
+
+    private volatile String propertiesAbsoluteClassPath;
+    /**
+     * File system path of properties file, resolved when load. Null if not a file, or not loaded yet.
+     */
+    private volatile String propertiesFilePath;
+    /**
+     * File which configs loaded from last time. Null if configs is not loaded from a file.
+     */
+    private volatile File configFile;
+
+    /**
+     * Immutable snapshot of configs loaded from properties file, with parsed values cache.
+     * Reload or modify build a new snapshot and replace this one, readers never see a half-loaded file.
+     */
+    private volatile ConfigSnapshot configs;
+    /**
+     * Lock for replace snapshot and write file, so concurrent modifies will not lose updates. Readers not use it.
+     */
+    private final Object snapshotLock = new Object();
+    /**
+     * Lock for load configs, only one thread load file at same time, others wait and use its result.
+     * Must get before snapshotLock.
+     */
+    private final Object loadLock = new Object();
 
-    private String propertiesAbsoluteClassPath;
-    private String propertiesFilePath;
+    /**
+     * Parsed default values of {@link IConfigKeyHaveDefault} keys. Default values never change, no need to clear.
+     */
+    private final Map<IConfigKey, ConfigValue> defaultValues = new ConcurrentHashMap<IConfigKey, ConfigValue>();
 
     /**
-     * Properties object loaded from properties file.
+     * Sections got by {@link #view(String)}, only for prefixes used as sections, not for prefixed get methods.
+     */
+    private final Map<String, ConfigSection> sections = new ConcurrentHashMap<String, ConfigSection>();
+    private final ConfigListeners listeners = new ConfigListeners(this);
+
+    /**
+     * Write-behind settings and state, all guarded by snapshotLock.
+     * Max delay less than 0 means write-behind disabled, write file when modify.
+     */
+    private long writeBehindDelayMillis = -1;
+    private int writeBehindBatchSize;
+    /**
+     * Modified configs not written into file yet.
      */
-    private Properties configs;
+    private final Map<String, String> pendingModifies = new LinkedHashMap<String, String>();
+    private ScheduledFuture<?> flushFuture;
+    /**
+     * Delay of last retry after write failed, 0 if last write succeeded.
+     */
+    private long retryDelayMillis;
 
     protected OneProperties() {
     }
 
     /**
-     * Init properties file path. Will reload configs every time.
+     * <p>Init properties file path.</p>
+     * If configs already loaded, reload at once. If not, configs will be loaded at first access.
      */
     void initConfigs(String propertiesAbsoluteClassPath) {
-        this.propertiesAbsoluteClassPath = propertiesAbsoluteClassPath;
-        this.propertiesFilePath = ResourceUtil.getAbsolutePath(propertiesAbsoluteClassPath);
-        loadConfigs();
+        synchronized (loadLock) {
+            this.propertiesAbsoluteClassPath = propertiesAbsoluteClassPath;
+            if (configs != null) {
+                loadConfigs();
+            }
+        }
     }
 
     /**
-     * Load properties. Will refresh configs every time.
+     * Load properties. Will refresh configs every time, parsed values are also cleared.
      */
     protected void loadConfigs() {
-        configs = new Properties();
-        // If run as a jar, find in file system classpath first, if not found, then get resource in jar.
-        if (ClassPathUtil.testRunMainInJar()) {
-            String[] classPathsInFileSystem = ClassPathUtil.getAllClassPathNotInJar();
-            String workDir = System.getProperty("user.dir");
-            String mainJarRelativePath = ClassPathUtil.getClassPathsInSystemProperty()[0];
-            File mainJar = new File(workDir, mainJarRelativePath);
-            File mainJarDir = mainJar.getParentFile();
-            for (String classPath : classPathsInFileSystem) {
-                File classPathFile = new File(classPath);
-                File configFile;
-                if (classPathFile.isAbsolute()) {
-                    configFile = new File(classPathFile, propertiesAbsoluteClassPath);
-                } else {
-                    configFile = new File(new File(mainJarDir, classPath), propertiesAbsoluteClassPath);
-                }
-                if (configFile.exists() && configFile.isFile()) {
-                    InputStream is = null;
-                    try {
-                        is = new FileInputStream(configFile);
-                        loadConfigsFromStream(is);
-                    } catch (FileNotFoundException e) {
-                        LOGGER.warn("Load config file " + configFile.getPath() + " error!", e);
-                    }
-                    return;
+        synchronized (loadLock) {
+            ConfigSnapshot loaded = ConfigSnapshot.of(readConfigs());
+            synchronized (snapshotLock) {
+                if (!pendingModifies.isEmpty()) { // keep modifies not written into file yet.
+                    loaded = loaded.modify(pendingModifies);
                 }
+                ConfigSnapshot old = configs;
+                configs = loaded;
+                listeners.fireChanges(old, loaded);
             }
         }
-        if (propertiesFilePath == null) {
-            if (propertiesAbsoluteClassPath == null) {
-                return;
-            }
-            InputStream is = OneProperties.class.getResourceAsStream(propertiesAbsoluteClassPath);
-            loadConfigsFromStream(is);
-        } else {
-            configs = PropertiesIO.load(propertiesFilePath);
+    }
+
+    /**
+     * @return absolute class path of properties file.
+     */
+    String getPropertiesAbsoluteClassPath() {
+        return propertiesAbsoluteClassPath;
+    }
+
+    /**
+     * @return true if configs is loaded.
+     */
+    boolean isLoaded() {
+        return configs != null;
+    }
+
+    /**
+     * Read configs from located resource. If it is a file, remember the file to write and watch.
+     */
+    private Map<String, String> readConfigs() {
+        if (propertiesAbsoluteClassPath == null) {
+            configFile = null;
+            propertiesFilePath = null;
+            return new HashMap<String, String>();
+        }
+        ResourceLocator.Location location = ResourceLocator.locate(propertiesAbsoluteClassPath);
+        File file = location.getFile();
+        configFile = file;
+        propertiesFilePath = file == null ? null : file.getPath();
+        if (file != null) {
+            return PropertiesIO.load(propertiesFilePath);
         }
+        if (!location.exists()) {
+            return new HashMap<String, String>();
+        }
+        InputStream is;
+        try {
+            is = ResourceUtil.openCached(propertiesAbsoluteClassPath); // not a file, never changed.
+        } catch (IOException e) {
+            LOGGER.warn("Load config " + location + " error!", e);
+            return new HashMap<String, String>();
+        }
+        return readConfigsFromStream(is);
     }
 
-    private void loadConfigsFromStream(InputStream is) {
+    private Map<String, String> readConfigsFromStream(InputStream is) {
         if (is == null) {
-            configs = new Properties();
-            return;
+            return new HashMap<String, String>();
         }
         try {
-            configs = PropertiesIO.load(is);
+            return PropertiesIO.load(is);
         } finally {
             try {
                 is.close();
@@ -115,6 +192,104 @@ public class OneProperties {
         }
     }
 
+    /**
+     * @return file which configs loaded from last time. Null if configs is not loaded from a file.
+     */
+    File getConfigFile() {
+        return configFile;
+    }
+
+    /**
+     * Get current snapshot, load configs at first access.
+     * If many threads access at same time, only one load, others wait and get same snapshot.
+     */
+    ConfigSnapshot getSnapshot() {
+        ConfigSnapshot snapshot = configs;
+        if (snapshot == null) {
+            synchronized (loadLock) {
+                if (configs == null) {
+                    loadConfigs();
+                }
+                snapshot = configs;
+            }
+        }
+        return snapshot;
+    }
+
+    /**
+     * <p>Get parsed value of key, parse only at first access.</p>
+     * If key is an enum, get value from array indexed by ordinal, no need to hash key string.
+     */
+    private ConfigValue getConfigValue(IConfigKey key) {
+        ConfigSnapshot snapshot = getSnapshot();
+        if (key instanceof Enum) {
+            Enum<?> enumKey = (Enum<?>) key;
+            ConfigValue[] enumValues = snapshot.getEnumValues(enumKey.getDeclaringClass());
+            if (enumValues == null) {
+                enumValues = buildEnumValues(snapshot, enumKey.getDeclaringClass());
+            }
+            return enumValues[enumKey.ordinal()];
+        }
+        return getConfigValue(snapshot, key.getKeyString(), key);
+    }
+
+    /**
+     * Build values array for all keys in enum class, index is ordinal.
+     * Array is bound to snapshot, so reload will build a new one.
+     */
+    private ConfigValue[] buildEnumValues(ConfigSnapshot snapshot, Class<?> enumClass) {
+        Object[] keys = enumClass.getEnumConstants();
+        ConfigValue[] enumValues = new ConfigValue[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            IConfigKey key = (IConfigKey) keys[i];
+            enumValues[i] = getConfigValue(snapshot, key.getKeyString(), key);
+        }
+        snapshot.putEnumValues(enumClass, enumValues);
+        return enumValues;
+    }
+
+    /**
+     * Get parsed value of prefixed key. Not create a section, prefix may be different every time.
+     */
+    private ConfigValue getConfigValue(String keyPrefix, IConfigKey key) {
+        return getConfigValue(getSnapshot(), keyPrefix + key.getKeyString(), key);
+    }
+
+    /**
+     * Get parsed value of key string, parse only at first access.
+     * If not config and key have default value, return parsed default value.
+     */
+    ConfigValue getConfigValue(ConfigSnapshot snapshot, String keyString, IConfigKey key) {
+        ConfigValue configValue = snapshot.getValue(keyString);
+        if (configValue.isPresent() || !(key instanceof IConfigKeyHaveDefault)) {
+            return configValue;
+        }
+        ConfigValue defaultValue = defaultValues.get(key);
+        if (defaultValue == null) {
+            String defaultValueStr = ((IConfigKeyHaveDefault) key).getDefaultValueStr();
+            defaultValue = defaultValueStr == null ? ConfigValue.ABSENT : new ConfigValue(defaultValueStr);
+            defaultValues.put(key, defaultValue);
+        }
+        return defaultValue;
+    }
+
+    /**
+     * <p>Get view of configs which key start with keyPrefix.</p>
+     * Section resolve prefixed key strings once, get config from section not concat strings every time.
+     * Section is kept for each prefix, so only use it for a few fixed prefixes.
+     *
+     * @param keyPrefix config key prefix
+     * @return section of configs, always reflect current configs after reload or modify.
+     */
+    protected ConfigSection view(String keyPrefix) {
+        ConfigSection section = sections.get(keyPrefix);
+        if (section == null) {
+            section = new ConfigSection(this, keyPrefix);
+            sections.put(keyPrefix, section);
+        }
+        return section;
+    }
+
     /**
      * <p>Get config string.</p>
      * If not config will return null.
@@ -123,14 +298,7 @@ public class OneProperties {
      * @return string value
      */
     protected String getConfig(IConfigKey key) {
-        if (configs == null) {
-            loadConfigs();
-        }
-        String value = configs.getProperty(key.getKeyString());
-        if (value == null && key instanceof IConfigKeyHaveDefault) {
-            return ((IConfigKeyHaveDefault) key).getDefaultValueStr();
-        }
-        return value;
+        return getConfigValue(key).getValue();
     }
 
     /**
@@ -142,14 +310,7 @@ public class OneProperties {
      * @return string value
      */
     protected String getConfig(String keyPrefix, IConfigKey key) {
-        if (configs == null) {
-            loadConfigs();
-        }
-        String value = configs.getProperty(keyPrefix + key.getKeyString());
-        if (value == null && key instanceof IConfigKeyHaveDefault) {
-            return ((IConfigKeyHaveDefault) key).getDefaultValueStr();
-        }
-        return value;
+        return getConfigValue(keyPrefix, key).getValue();
     }
 
     /**
@@ -160,12 +321,7 @@ public class OneProperties {
      * @return true/false
      */
     protected boolean isConfigTrue(IConfigKey key) {
-        String value = getConfig(key);
-        if (value == null) {
-            return false;
-        }
-        value = value.toLowerCase();
-        return TRUE.equals(value);
+        return getConfigValue(key).isTrue();
     }
 
     /**
@@ -177,12 +333,7 @@ public class OneProperties {
      * @return true/false
      */
     protected boolean isConfigTrue(String keyPrefix, IConfigKey key) {
-        String value = getConfig(keyPrefix, key);
-        if (value == null) {
-            return false;
-        }
-        value = value.toLowerCase();
-        return TRUE.equals(value);
+        return getConfigValue(keyPrefix, key).isTrue();
     }
 
     /**
@@ -194,11 +345,7 @@ public class OneProperties {
      * @see BigDecimal
      */
     protected BigDecimal getDecimalConfig(IConfigKey key) {
-        String value = getConfig(key);
-        if (value == null) {
-            return null;
-        }
-        return new BigDecimal(value);
+        return getConfigValue(key).getDecimal();
     }
 
     /**
@@ -211,11 +358,88 @@ public class OneProperties {
      * @see BigDecimal
      */
     protected BigDecimal getDecimalConfig(String keyPrefix, IConfigKey key) {
-        String value = getConfig(keyPrefix, key);
-        if (value == null) {
-            return null;
-        }
-        return new BigDecimal(value);
+        return getConfigValue(keyPrefix, key).getDecimal();
+    }
+
+    /**
+     * <p>Get config int value.</p>
+     * If not config will return defaultValue.
+     *
+     * @param key          config key
+     * @param defaultValue value to return if not config
+     * @return int value
+     * @throws NumberFormatException if config value is not an int.
+     */
+    protected int getIntConfig(IConfigKey key, int defaultValue) {
+        return getConfigValue(key).getInt(defaultValue);
+    }
+
+    /**
+     * <p>Get config int value. Config key with prefix.</p>
+     * If not config will return defaultValue.
+     *
+     * @param keyPrefix    config key prefix
+     * @param key          config key
+     * @param defaultValue value to return if not config
+     * @return int value
+     * @throws NumberFormatException if config value is not an int.
+     */
+    protected int getIntConfig(String keyPrefix, IConfigKey key, int defaultValue) {
+        return getConfigValue(keyPrefix, key).getInt(defaultValue);
+    }
+
+    /**
+     * <p>Get config long value.</p>
+     * If not config will return defaultValue.
+     *
+     * @param key          config key
+     * @param defaultValue value to return if not config
+     * @return long value
+     * @throws NumberFormatException if config value is not a long.
+     */
+    protected long getLongConfig(IConfigKey key, long defaultValue) {
+        return getConfigValue(key).getLong(defaultValue);
+    }
+
+    /**
+     * <p>Get config long value. Config key with prefix.</p>
+     * If not config will return defaultValue.
+     *
+     * @param keyPrefix    config key prefix
+     * @param key          config key
+     * @param defaultValue value to return if not config
+     * @return long value
+     * @throws NumberFormatException if config value is not a long.
+     */
+    protected long getLongConfig(String keyPrefix, IConfigKey key, long defaultValue) {
+        return getConfigValue(keyPrefix, key).getLong(defaultValue);
+    }
+
+    /**
+     * <p>Get config double value.</p>
+     * If not config will return defaultValue.
+     *
+     * @param key          config key
+     * @param defaultValue value to return if not config
+     * @return double value
+     * @throws NumberFormatException if config value is not a number.
+     */
+    protected double getDoubleConfig(IConfigKey key, double defaultValue) {
+        return getConfigValue(key).getDouble(defaultValue);
+    }
+
+    /**
+     * <p>Get config double value. Config key with prefix.</p>
+     * If not config will return defaultValue.
+     *
+     * @param keyPrefix    config key prefix
+     * @param key          config key
+     * @param defaultValue value to return if not config
+     * @return double value
+     * @throws NumberFormatException if config value is not a number.
+     */
+    protected double getDoubleConfig(String keyPrefix, IConfigKey key, double defaultValue) {
+        return getConfigValue(keyPrefix, key).getDouble(defaultValue);
     }
 
     /**
@@ -225,14 +449,7 @@ public class OneProperties {
      * @param value new value
      */
     protected void modifyConfig(IConfigKey key, String value) throws IOException {
-        if (propertiesFilePath == null) {
-            LOGGER.warn("Config " + propertiesAbsoluteClassPath + " is not a file, maybe just a resource in library.");
-        }
-        if (configs == null) {
-            loadConfigs();
-        }
-        configs.setProperty(key.getKeyString(), value);
-        PropertiesIO.store(propertiesFilePath, configs);
+        modifyConfigs(Collections.singletonMap(key.getKeyString(), value));
     }
 
     /**
@@ -243,14 +460,7 @@ public class OneProperties {
      * @param value     new value
      */
     protected void modifyConfig(String keyPrefix, IConfigKey key, String value) throws IOException {
-        if (propertiesFilePath == null) {
-            LOGGER.warn("Config " + propertiesAbsoluteClassPath + " is not a file, maybe just a resource in library.");
-        }
-        if (configs == null) {
-            loadConfigs();
-        }
-        configs.setProperty(keyPrefix + key.getKeyString(), value);
-        PropertiesIO.store(propertiesFilePath, configs);
+        modifyConfigs(Collections.singletonMap(keyPrefix + key.getKeyString(), value));
     }
 
     /**
@@ -260,18 +470,230 @@ public class OneProperties {
      * @param modifyConfig need update config map.
      */
     protected void modifyConfig(Map<? extends IConfigKey, String> modifyConfig) throws IOException {
+        Map<String, String> modifyConfigs = new HashMap<String, String>();
+        for (IConfigKey key : modifyConfig.keySet()) {
+            modifyConfigs.put(key.getKeyString(), modifyConfig.get(key));
+        }
+        modifyConfigs(modifyConfigs);
+    }
+
+    /**
+     * Build a new snapshot include modified configs, replace current one, then write into properties file.
+     *
+     * @param modifyConfigs key is full key string. If one value is null, will not update that one.
+     */
+    private void modifyConfigs(Map<String, String> modifyConfigs) throws IOException {
+        getSnapshot(); // make sure loaded, file path is resolved when load.
         if (propertiesFilePath == null) {
             LOGGER.warn("Config " + propertiesAbsoluteClassPath + " is not a file, maybe just a resource in library.");
         }
-        if (configs == null) {
-            loadConfigs();
+        synchronized (snapshotLock) {
+            ConfigSnapshot old = configs;
+            ConfigSnapshot modified = old.modify(modifyConfigs);
+            configs = modified;
+            listeners.fireChanges(old, modified);
+            if (writeBehindDelayMillis < 0) {
+                PropertiesIO.store(propertiesFilePath, modified.getConfigs());
+                pendingModifies.clear(); // left by a failed flush, written with this one, not apply at reload.
+                retryDelayMillis = 0;
+                return;
+            }
+            for (Map.Entry<String, String> entry : modifyConfigs.entrySet()) {
+                if (entry.getValue() != null) {
+                    pendingModifies.put(entry.getKey(), entry.getValue());
+                }
+            }
+            if (pendingModifies.size() >= writeBehindBatchSize) {
+                flushPending();
+            } else if (flushFuture == null) {
+                scheduleFlush(writeBehindDelayMillis);
+            }
+        }
+    }
+
+    /**
+     * <p>Enable write-behind mode.</p>
+     * In write-behind mode, modify only change configs in memory, modifies from many threads are merged,
+     * and written into properties file once after maxDelayMillis, or when modified keys reach maxBatchSize.
+     * Not written modifies are also written by {@link #flush()} or when JVM shutdown.
+     *
+     * @param maxDelayMillis max time to delay write after first modify, in milliseconds.
+     * @param maxBatchSize   max modified keys count to delay write.
+     * @throws IllegalArgumentException if maxDelayMillis is negative, or maxBatchSize is not positive.
+     */
+    protected void enableWriteBehind(long maxDelayMillis, int maxBatchSize) {
+        checkWriteBehind(maxDelayMillis, maxBatchSize);
+        synchronized (snapshotLock) {
+            writeBehindDelayMillis = maxDelayMillis;
+            writeBehindBatchSize = maxBatchSize;
+            WriteBehindFlusher.WRITE_BEHIND_CONFIGS.add(this);
         }
-        for (IConfigKey key : modifyConfig.keySet()) {
-            if (modifyConfig.get(key) != null) {
-                configs.setProperty(key.getKeyString(), modifyConfig.get(key));
+    }
+
+    static void checkWriteBehind(long maxDelayMillis, int maxBatchSize) {
+        if (maxDelayMillis < 0) {
+            throw new IllegalArgumentException("Write-behind max delay can't be negative: " + maxDelayMillis);
+        }
+        if (maxBatchSize <= 0) {
+            throw new IllegalArgumentException("Write-behind max batch size must be positive: " + maxBatchSize);
+        }
+    }
+
+    /**
+     * Write not written modifies, then disable write-behind mode, modify will write file immediately.
+     *
+     * @throws IOException if write file failed, write-behind mode is still disabled,
+     *                     not written modifies will be written with next modify.
+     */
+    protected void disableWriteBehind() throws IOException {
+        synchronized (snapshotLock) {
+            writeBehindDelayMillis = -1;
+            WriteBehindFlusher.WRITE_BEHIND_CONFIGS.remove(this);
+            flushPending();
+        }
+    }
+
+    /**
+     * Write modifies not written yet into properties file. If no modify not written, do nothing.
+     *
+     * @throws IOException if write file failed, modifies will be written next time.
+     */
+    protected void flush() throws IOException {
+        synchronized (snapshotLock) {
+            flushPending();
+        }
+    }
+
+    /**
+     * Must hold snapshotLock.
+     */
+    private void flushPending() throws IOException {
+        if (flushFuture != null) {
+            flushFuture.cancel(false);
+            flushFuture = null;
+        }
+        if (pendingModifies.isEmpty()) {
+            return;
+        }
+        if (propertiesFilePath != null) { // not a file, can't write, already warned when modify.
+            PropertiesIO.store(propertiesFilePath, configs.getConfigs());
+        }
+        pendingModifies.clear();
+        retryDelayMillis = 0;
+    }
+
+    /**
+     * Must hold snapshotLock.
+     */
+    private void scheduleFlush(long delayMillis) {
+        flushFuture = WriteBehindFlusher.SCHEDULER.schedule(new Runnable() {
+            public void run() {
+                synchronized (snapshotLock) {
+                    flushFuture = null;
+                    try {
+                        flushPending();
+                    } catch (IOException e) {
+                        retryFlush(e);
+                    } catch (RuntimeException e) {
+                        retryFlush(e);
+                    }
+                }
             }
+        }, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * <p>Must hold snapshotLock. Write failed, retry later.</p>
+     * Delay is doubled after each failure, so a file that can't be written (eg: read only)
+     * not keep the shared writer thread busy, other configs are still written in time.
+     */
+    private void retryFlush(Exception e) {
+        long delayMillis = retryDelayMillis == 0
+                ? Math.max(writeBehindDelayMillis, MIN_RETRY_DELAY_MILLIS) : retryDelayMillis * 2;
+        retryDelayMillis = Math.min(delayMillis, Math.max(writeBehindDelayMillis, MAX_RETRY_DELAY_MILLIS));
+        LOGGER.warn("Write config file " + propertiesFilePath + " error! Retry after " + retryDelayMillis + "ms.", e);
+        scheduleFlush(retryDelayMillis);
+    }
+
+    /**
+     * <p>Add listener for one config key.</p>
+     * After reload or modify, if value of key changed, listener will be notified in background thread.
+     *
+     * @param key      config key to listen
+     * @param listener listener to notify
+     */
+    protected void addChangeListener(IConfigKey key, IConfigChangeListener listener) {
+        listeners.add(new IConfigKey[]{key}, listener);
+    }
+
+    /**
+     * <p>Add listener for all config keys in enum class.</p>
+     * After reload or modify, listener will be notified for each key which value changed.
+     *
+     * @param keyClass enum class of config keys to listen
+     * @param listener listener to notify
+     * @throws IllegalArgumentException if keyClass is not an enum.
+     */
+    protected void addChangeListener(Class<? extends IConfigKey> keyClass, IConfigChangeListener listener) {
+        IConfigKey[] keys = keyClass.getEnumConstants();
+        if (keys == null) {
+            throw new IllegalArgumentException("Config key class " + keyClass.getName() + " is not an enum.");
         }
-        PropertiesIO.store(propertiesFilePath, configs);
+        listeners.add(keys, listener);
+    }
+
+    /**
+     * Remove listener from all keys it listen to.
+     *
+     * @param listener listener to remove
+     * @return true if listener is removed, false if listener not added.
+     */
+    protected boolean removeChangeListener(IConfigChangeListener listener) {
+        return listeners.remove(listener);
+    }
+
+    ConfigListeners getListeners() {
+        return listeners;
+    }
+
+    /**
+     * Run task in the background thread which writes configs in write-behind mode,
+     * for work with file IO that should not block caller.
+     */
+    static void executeInWriter(Runnable task) {
+        WriteBehindFlusher.SCHEDULER.execute(task);
+    }
+
+    /**
+     * Background thread to write configs in write-behind mode, and flush all of them when JVM shutdown.
+     */
+    private static final class WriteBehindFlusher {
+
+        private static final ScheduledExecutorService SCHEDULER =
+                Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                    public Thread newThread(Runnable r) {
+                        Thread thread = new Thread(r, "config-writer");
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+        private static final Set<OneProperties> WRITE_BEHIND_CONFIGS =
+                Collections.newSetFromMap(new ConcurrentHashMap<OneProperties, Boolean>());
+
+        static {
+            Runtime.getRuntime().addShutdownHook(new Thread("config-flush") {
+                public void run() {
+                    for (OneProperties configs : WRITE_BEHIND_CONFIGS) {
+                        try {
+                            configs.flush();
+                        } catch (IOException e) {
+                            LOGGER.error("Write config file " + configs.propertiesFilePath + " failed when shutdown!", e);
+                        }
+                    }
+                }
+            });
+        }
+
     }
 
     private static final Logger LOGGER = LoggerFactory.getLogger(OneProperties.class);
@@ -16,12 +16,22 @@
 package net.sunyijun.resource.config;
 
 
-import net.sunyijun.resource.UnicodeInputStream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Properties;
+import java.util.TreeMap;
 
 
 /**
@@ -29,78 +39,244 @@ import java.util.Properties;
  * unicode that include BOM.
  *
  * @author yijun.sun
- * @see UnicodeInputStream
+ * @see PropertiesParser
  * @since 0.0.1
  */
 class PropertiesIO {
 
     /**
-     * Read properties file.
+     * Files not smaller than this size are memory-mapped when read.
+     */
+    private static final int MAP_THRESHOLD = 64 * 1024;
+    /**
+     * Max size of buffer kept for each thread to read streams.
+     */
+    private static final int MAX_POOLED_BUFFER_SIZE = 1024 * 1024;
+    private static final ThreadLocal<byte[]> STREAM_BUFFER = new ThreadLocal<byte[]>() {
+        protected byte[] initialValue() {
+            return new byte[8192];
+        }
+    };
+
+    /**
+     * Read properties file. Large file is memory-mapped and parsed directly.
      *
      * @param absolutePath absolute path in file system.
+     * @see PropertiesParser
      */
-    public static Properties load(String absolutePath) {
-        Properties configs = new Properties();
+    public static Map<String, String> load(String absolutePath) {
         if (absolutePath == null) {
-            return configs;
+            return new HashMap<String, String>();
         }
-        File configFile = new File(absolutePath);
-        FileInputStream inStream = null;
+        FileChannel channel = null;
         try {
-            inStream = new FileInputStream(configFile);
-            configs.load(new UnicodeInputStream(inStream).skipBOM());
+            channel = FileChannel.open(new File(absolutePath).toPath(), StandardOpenOption.READ);
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Properties file is too large: " + size);
+            }
+            ByteBuffer buffer;
+            if (size >= MAP_THRESHOLD) {
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            } else {
+                buffer = ByteBuffer.allocate((int) size);
+                while (buffer.hasRemaining() && channel.read(buffer) != -1) {
+                    // read all
+                }
+                buffer.flip();
+            }
+            return PropertiesParser.parse(buffer);
         } catch (IOException e) {
             LOGGER.warn("Load " + absolutePath + " error!", e);
         } finally {
             try {
-                if (inStream != null) {
-                    inStream.close();
+                if (channel != null) {
+                    channel.close();
                 }
             } catch (IOException ignore) {
                 // do nothing.
             }
         }
-        return configs;
+        return new HashMap<String, String>();
     }
 
     /**
-     * Read properties file.
+     * Read properties file. Read all bytes into a buffer reused by current thread, then parse.
      *
      * @param inputStream properties file input stream. This method will not close the input stream.
+     * @see PropertiesParser
      */
-    public static Properties load(InputStream inputStream) {
-        Properties configs = new Properties();
+    public static Map<String, String> load(InputStream inputStream) {
+        byte[] buffer = STREAM_BUFFER.get();
+        int length = 0;
         try {
-            configs.load(new UnicodeInputStream(inputStream).skipBOM());
+            int n;
+            while ((n = inputStream.read(buffer, length, buffer.length - length)) != -1) {
+                length += n;
+                if (length == buffer.length) {
+                    byte[] newBuffer = new byte[buffer.length * 2];
+                    System.arraycopy(buffer, 0, newBuffer, 0, length);
+                    buffer = newBuffer;
+                }
+            }
         } catch (IOException e) {
             LOGGER.warn("Load properties from inputStream error!", e);
+            return new HashMap<String, String>();
+        }
+        if (buffer.length <= MAX_POOLED_BUFFER_SIZE) {
+            STREAM_BUFFER.set(buffer);
         }
-        return configs;
+        return PropertiesParser.parse(ByteBuffer.wrap(buffer, 0, length));
+    }
+
+    private static volatile StoreDurability durability = StoreDurability.FSYNC_FILE;
+
+    static void setDurability(StoreDurability durability) {
+        PropertiesIO.durability = durability;
     }
 
     /**
-     * Write into properties file.
+     * <p>Write into properties file.</p>
+     * Keys are sorted and no date comment, so same configs always write same bytes.
+     * If file content is already same, not write at all.
+     * Otherwise write into a temp file in same directory, then rename to target file atomically,
+     * so crash or concurrent reader never see an empty or partial file.
      *
      * @param absolutePath absolute path in file system.
      * @param configs      all configs to write.
+     * @return true if file is written, false if file content is same, not write.
      * @throws java.io.IOException
+     * @see StoreDurability
      */
-    public static void store(String absolutePath, Properties configs) throws IOException {
-        OutputStream outStream = null;
+    public static boolean store(String absolutePath, Map<String, String> configs) throws IOException {
+        Path target = new File(absolutePath).toPath().toAbsolutePath();
+        byte[] content = serialize(configs);
+        if (Files.isRegularFile(target) && Files.size(target) == content.length &&
+                Arrays.equals(Files.readAllBytes(target), content)) {
+            return false;
+        }
+        StoreDurability storeDurability = durability;
+        Path dir = target.getParent();
+        // not Files.createTempFile, it is owner only, a new config file would not be readable by others.
+        // File.createTempFile use default permissions, same as file created by FileOutputStream.
+        Path temp = File.createTempFile("." + target.getFileName(), ".tmp", dir.toFile()).toPath();
         try {
-            outStream = new FileOutputStream(new File(absolutePath));
-            configs.store(outStream, null);
-        } finally {
+            FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE);
             try {
-                if (outStream != null) {
-                    outStream.close();
+                ByteBuffer buffer = ByteBuffer.wrap(content);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
                 }
-            } catch (IOException ignore) {
-                // do nothing.
+                if (storeDurability != StoreDurability.NONE) {
+                    channel.force(true);
+                }
+            } finally {
+                channel.close();
+            }
+            copyPermissions(target, temp);
+            try {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        if (storeDurability == StoreDurability.FSYNC_FILE_AND_DIR) {
+            forceDirectory(dir);
+        }
+        return true;
+    }
+
+    /**
+     * Serialize configs like {@link Properties#store(OutputStream, String)}, but keys sorted and no date comment.
+     */
+    static byte[] serialize(Map<String, String> configs) {
+        StringBuilder builder = new StringBuilder(configs.size() * 32);
+        for (Map.Entry<String, String> entry : new TreeMap<String, String>(configs).entrySet()) {
+            escape(builder, entry.getKey(), true);
+            builder.append('=');
+            escape(builder, entry.getValue(), false);
+            builder.append(LINE_SEPARATOR);
+        }
+        byte[] bytes = new byte[builder.length()];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) builder.charAt(i); // all chars are escaped into ISO-8859-1.
+        }
+        return bytes;
+    }
+
+    /**
+     * Same escape rules as {@link Properties#store(OutputStream, String)}.
+     */
+    private static void escape(StringBuilder builder, String str, boolean escapeSpace) {
+        for (int i = 0; i < str.length(); i++) {
+            char c = str.charAt(i);
+            switch (c) {
+                case ' ':
+                    if (i == 0 || escapeSpace) {
+                        builder.append('\\');
+                    }
+                    builder.append(' ');
+                    break;
+                case '\t':
+                    builder.append("\\t");
+                    break;
+                case '\n':
+                    builder.append("\\n");
+                    break;
+                case '\r':
+                    builder.append("\\r");
+                    break;
+                case '\f':
+                    builder.append("\\f");
+                    break;
+                case '\\':
+                case '=':
+                case ':':
+                case '#':
+                case '!':
+                    builder.append('\\').append(c);
+                    break;
+                default:
+                    if (c < 0x0020 || c > 0x007e) {
+                        builder.append("\\u").append(HEX[(c >> 12) & 0xF]).append(HEX[(c >> 8) & 0xF])
+                                .append(HEX[(c >> 4) & 0xF]).append(HEX[c & 0xF]);
+                    } else {
+                        builder.append(c);
+                    }
+            }
+        }
+    }
+
+    private static void copyPermissions(Path from, Path to) {
+        if (!Files.exists(from)) {
+            return;
+        }
+        try {
+            Files.setPosixFilePermissions(to, Files.getPosixFilePermissions(from));
+        } catch (UnsupportedOperationException ignore) {
+            // not posix file system.
+        } catch (IOException e) {
+            LOGGER.warn("Keep permissions of " + from + " error!", e);
+        }
+    }
+
+    private static void forceDirectory(Path dir) {
+        try {
+            FileChannel channel = FileChannel.open(dir, StandardOpenOption.READ);
+            try {
+                channel.force(true);
+            } finally {
+                channel.close();
             }
+        } catch (IOException ignore) {
+            // some systems(windows) can't open directory, nothing to do.
         }
     }
 
+    private static final String LINE_SEPARATOR = System.getProperty("line.separator");
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
     private static final Logger LOGGER = LoggerFactory.getLogger(PropertiesIO.class);
 
 }
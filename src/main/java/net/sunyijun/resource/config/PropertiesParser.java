@@ -0,0 +1,417 @@
+/*
+ * Copyright 2015 yijun.sun
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.sunyijun.resource.config;
+
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CodingErrorAction;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+
+/**
+ * <p>Properties file parser, same syntax as {@link java.util.Properties#load(java.io.Reader)}.</p>
+ * Parse bytes in buffer directly (may be a memory-mapped file), into a plain map.
+ * <ul>
+ * <li>If content start with a unicode BOM, skip BOM and decode as BOM's encoding.</li>
+ * <li>If no BOM, each byte is a ISO-8859-1 char, same as {@link java.util.Properties#load(java.io.InputStream)}.</li>
+ * </ul>
+ * Large content is split at line boundaries which not continue to next line, and parsed in parallel.
+ *
+ * @author yijun.sun
+ * @since 0.0.8
+ */
+final class PropertiesParser {
+
+    /**
+     * Content larger than this chars count will be parsed in parallel.
+     */
+    static final int PARALLEL_THRESHOLD = 1024 * 1024;
+
+    private static final int PARALLELISM = Runtime.getRuntime().availableProcessors();
+
+    private PropertiesParser() {
+    }
+
+    /**
+     * Parse properties content in buffer, from buffer's position to limit. Buffer's position is not changed.
+     *
+     * @param buffer properties content.
+     * @return all configs, later one win if key duplicated.
+     * @throws IllegalArgumentException if content has malformed \\uxxxx escape, or not valid in BOM's encoding.
+     */
+    static Map<String, String> parse(ByteBuffer buffer) {
+        CharSequence content = decode(buffer);
+        if (content.length() <= PARALLEL_THRESHOLD || PARALLELISM == 1) {
+            Map<String, String> configs = new HashMap<String, String>();
+            new LineParser(content, 0, content.length()).parseInto(configs);
+            return configs;
+        }
+        return parseParallel(content);
+    }
+
+    private static CharSequence decode(ByteBuffer buffer) {
+        ByteBuffer content = buffer.slice();
+        String encoding = null;
+        int bomSize = 0;
+        int remaining = content.remaining();
+        int b0 = remaining > 0 ? content.get(0) & 0xFF : -1;
+        int b1 = remaining > 1 ? content.get(1) & 0xFF : -1;
+        int b2 = remaining > 2 ? content.get(2) & 0xFF : -1;
+        int b3 = remaining > 3 ? content.get(3) & 0xFF : -1;
+        if (b0 == 0x00 && b1 == 0x00 && b2 == 0xFE && b3 == 0xFF) {
+            encoding = "UTF-32BE";
+            bomSize = 4;
+        } else if (b0 == 0xFF && b1 == 0xFE && b2 == 0x00 && b3 == 0x00) {
+            encoding = "UTF-32LE";
+            bomSize = 4;
+        } else if (b0 == 0xEF && b1 == 0xBB && b2 == 0xBF) {
+            encoding = "UTF-8";
+            bomSize = 3;
+        } else if (b0 == 0xFE && b1 == 0xFF) {
+            encoding = "UTF-16BE";
+            bomSize = 2;
+        } else if (b0 == 0xFF && b1 == 0xFE) {
+            encoding = "UTF-16LE";
+            bomSize = 2;
+        }
+        if (encoding == null) {
+            return new Latin1Chars(content);
+        }
+        content.position(bomSize);
+        try {
+            return Charset.forName(encoding).newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPORT)
+                    .onUnmappableCharacter(CodingErrorAction.REPORT)
+                    .decode(content);
+        } catch (CharacterCodingException e) {
+            throw new IllegalArgumentException("Properties content is not valid " + encoding + ".", e);
+        }
+    }
+
+    private static Map<String, String> parseParallel(CharSequence content) {
+        List<Integer> starts = splitPoints(content, PARALLELISM);
+        List<Future<Map<String, String>>> futures = new ArrayList<Future<Map<String, String>>>(starts.size());
+        for (int i = 0; i < starts.size(); i++) {
+            final int start = starts.get(i);
+            final int end = i + 1 < starts.size() ? starts.get(i + 1) : content.length();
+            final CharSequence chars = content;
+            futures.add(ParserThreads.EXECUTOR.submit(new Callable<Map<String, String>>() {
+                public Map<String, String> call() {
+                    Map<String, String> configs = new HashMap<String, String>();
+                    new LineParser(chars, start, end).parseInto(configs);
+                    return configs;
+                }
+            }));
+        }
+        Map<String, String> configs = new HashMap<String, String>(content.length() / 32);
+        for (Future<Map<String, String>> future : futures) { // keep order, later one win.
+            try {
+                configs.putAll(future.get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted when parse properties.", e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw new IllegalStateException("Parse properties error!", e.getCause());
+            }
+        }
+        return configs;
+    }
+
+    /**
+     * Find start index of each part. A part must start after a line which not end with backslash,
+     * so no logical line is split into two parts.
+     */
+    static List<Integer> splitPoints(CharSequence content, int parts) {
+        List<Integer> starts = new ArrayList<Integer>(parts);
+        starts.add(0);
+        int length = content.length();
+        int partSize = length / parts;
+        for (int i = 1; i < parts; i++) {
+            int start = Math.max(i * partSize, starts.get(starts.size() - 1));
+            start = nextSafeLineStart(content, start);
+            if (start >= length) {
+                break;
+            }
+            if (start > starts.get(starts.size() - 1)) {
+                starts.add(start);
+            }
+        }
+        return starts;
+    }
+
+    private static int nextSafeLineStart(CharSequence content, int from) {
+        int length = content.length();
+        int i = from;
+        while (i < length) {
+            char c = content.charAt(i);
+            if (c != '\n' && c != '\r') {
+                i++;
+                continue;
+            }
+            int lineEnd = c == '\n' && i > 0 && content.charAt(i - 1) == '\r' ? i - 1 : i;
+            boolean continued = lineEnd > 0 && content.charAt(lineEnd - 1) == '\\';
+            if (c == '\r' && i + 1 < length && content.charAt(i + 1) == '\n') {
+                i++;
+            }
+            i++;
+            if (!continued) {
+                return i;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Parse logical lines in a range of content, same rules as LineReader and loadConvert in Properties.
+     */
+    private static final class LineParser {
+
+        private final CharSequence content;
+        private int position;
+        private final int end;
+        private char[] line = new char[1024];
+        private char[] convertBuffer = new char[1024];
+
+        private LineParser(CharSequence content, int start, int end) {
+            this.content = content;
+            this.position = start;
+            this.end = end;
+        }
+
+        private void parseInto(Map<String, String> configs) {
+            int limit;
+            while ((limit = readLine()) >= 0) {
+                int keyLen = 0;
+                int valueStart = limit;
+                boolean hasSep = false;
+                boolean precedingBackslash = false;
+                while (keyLen < limit) {
+                    char c = line[keyLen];
+                    if ((c == '=' || c == ':') && !precedingBackslash) {
+                        valueStart = keyLen + 1;
+                        hasSep = true;
+                        break;
+                    } else if ((c == ' ' || c == '\t' || c == '\f') && !precedingBackslash) {
+                        valueStart = keyLen + 1;
+                        break;
+                    }
+                    precedingBackslash = c == '\\' && !precedingBackslash;
+                    keyLen++;
+                }
+                while (valueStart < limit) {
+                    char c = line[valueStart];
+                    if (c != ' ' && c != '\t' && c != '\f') {
+                        if (!hasSep && (c == '=' || c == ':')) {
+                            hasSep = true;
+                        } else {
+                            break;
+                        }
+                    }
+                    valueStart++;
+                }
+                String key = convert(0, keyLen);
+                String value = convert(valueStart, limit - valueStart);
+                configs.put(key, value);
+            }
+        }
+
+        /**
+         * Read one logical line into line buffer, skip blank lines and comment lines, join continued lines.
+         *
+         * @return length of line, -1 if no more line.
+         */
+        private int readLine() {
+            int len = 0;
+            boolean skipWhiteSpace = true;
+            boolean appendedLineBegin = false;
+            boolean precedingBackslash = false;
+            while (true) {
+                if (position >= end) {
+                    if (len == 0) {
+                        return -1;
+                    }
+                    return precedingBackslash ? len - 1 : len;
+                }
+                char c = content.charAt(position++);
+                if (skipWhiteSpace) {
+                    if (c == ' ' || c == '\t' || c == '\f') {
+                        continue;
+                    }
+                    if (!appendedLineBegin && (c == '\r' || c == '\n')) {
+                        continue;
+                    }
+                    skipWhiteSpace = false;
+                    appendedLineBegin = false;
+                }
+                if (len == 0 && (c == '#' || c == '!')) { // comment, skip rest of natural line
+                    while (true) {
+                        if (position >= end) {
+                            return -1;
+                        }
+                        c = content.charAt(position++);
+                        if (c == '\r' || c == '\n') {
+                            break;
+                        }
+                    }
+                    skipWhiteSpace = true;
+                    continue;
+                }
+                if (c != '\n' && c != '\r') {
+                    if (len == line.length) {
+                        char[] newLine = new char[line.length * 2];
+                        System.arraycopy(line, 0, newLine, 0, len);
+                        line = newLine;
+                    }
+                    line[len++] = c;
+                    precedingBackslash = c == '\\' && !precedingBackslash;
+                    continue;
+                }
+                // reached end of natural line
+                if (len == 0) {
+                    skipWhiteSpace = true;
+                    continue;
+                }
+                if (position >= end) {
+                    return precedingBackslash ? len - 1 : len;
+                }
+                if (!precedingBackslash) {
+                    return len;
+                }
+                // backslash at end is not part of line, join next line without its leading white spaces.
+                len--;
+                skipWhiteSpace = true;
+                appendedLineBegin = true;
+                precedingBackslash = false;
+                if (c == '\r' && content.charAt(position) == '\n') {
+                    position++;
+                }
+            }
+        }
+
+        /**
+         * Convert escapes \\uxxxx, \\t, \\n, \\r, \\f and \\x in a range of line buffer.
+         */
+        private String convert(int off, int len) {
+            if (convertBuffer.length < len) {
+                convertBuffer = new char[Math.max(len, convertBuffer.length * 2)];
+            }
+            char[] out = convertBuffer;
+            int outLen = 0;
+            int index = off;
+            int limit = off + len;
+            while (index < limit) {
+                char c = line[index++];
+                if (c != '\\') {
+                    out[outLen++] = c;
+                    continue;
+                }
+                if (index >= limit) { // single backslash at end, nothing to escape.
+                    break;
+                }
+                c = line[index++];
+                if (c == 'u') {
+                    int value = 0;
+                    for (int i = 0; i < 4; i++) {
+                        if (index >= limit) {
+                            throw new IllegalArgumentException("Malformed \\uxxxx encoding.");
+                        }
+                        c = line[index++];
+                        int digit = Character.digit(c, 16);
+                        if (digit < 0) {
+                            throw new IllegalArgumentException("Malformed \\uxxxx encoding.");
+                        }
+                        value = (value << 4) + digit;
+                    }
+                    out[outLen++] = (char) value;
+                } else {
+                    if (c == 't') {
+                        c = '\t';
+                    } else if (c == 'r') {
+                        c = '\r';
+                    } else if (c == 'n') {
+                        c = '\n';
+                    } else if (c == 'f') {
+                        c = '\f';
+                    }
+                    out[outLen++] = c;
+                }
+            }
+            return new String(out, 0, outLen);
+        }
+
+    }
+
+    /**
+     * Chars of ISO-8859-1 bytes, no decode needed.
+     */
+    private static final class Latin1Chars implements CharSequence {
+
+        private final ByteBuffer bytes;
+
+        private Latin1Chars(ByteBuffer bytes) {
+            this.bytes = bytes;
+        }
+
+        public int length() {
+            return bytes.limit();
+        }
+
+        public char charAt(int index) {
+            return (char) (bytes.get(index) & 0xFF);
+        }
+
+        public CharSequence subSequence(int start, int end) {
+            ByteBuffer duplicate = bytes.duplicate();
+            duplicate.position(start);
+            duplicate.limit(end);
+            return new Latin1Chars(duplicate.slice());
+        }
+
+        public String toString() {
+            return CharBuffer.wrap(this).toString();
+        }
+
+    }
+
+    private static final class ParserThreads {
+
+        private static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(PARALLELISM,
+                new ThreadFactory() {
+                    public Thread newThread(Runnable r) {
+                        Thread thread = new Thread(r, "properties-parser");
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+
+    }
+
+}
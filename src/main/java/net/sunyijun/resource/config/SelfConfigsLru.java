@@ -0,0 +1,165 @@
+/*
+ * Copyright 2015 yijun.sun
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.sunyijun.resource.config;
+
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * <p>Approximate access order of self configs paths, to find least recently used ones when over max count.</p>
+ * Access only write a volatile time of the path, no lock, readers of different paths not block each other.
+ * Time is not updated if accessed in {@value #TOUCH_GRANULARITY_MILLIS} millisecond, so the order is approximate.
+ * Order is sorted only when find paths to evict, in background thread.<br>
+ * Paths added on purpose are never evicted and not counted.
+ * Evicted paths are all remembered, only a path string for each, so modify them always works as before.
+ *
+ * @author yijun.sun
+ * @see Configs#setMaxSelfConfigs(int)
+ * @since 0.0.8
+ */
+final class SelfConfigsLru {
+
+    private static final long TOUCH_GRANULARITY_MILLIS = 1;
+    private static final long TOUCH_GRANULARITY_NANOS = TimeUnit.MILLISECONDS.toNanos(TOUCH_GRANULARITY_MILLIS);
+
+    private final ConcurrentMap<String, Access> accesses = new ConcurrentHashMap<String, Access>();
+    /**
+     * Added by {@link Configs#addSelfConfigs(String, OneProperties)}, they are never removed from memory,
+     * so this set is not larger than configs in memory.
+     */
+    private final Set<String> addedPaths = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+    /**
+     * Removed from memory and not added again. Never forgotten, else modify them is ignored as never added.
+     */
+    private final Set<String> evictedPaths = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+    private volatile int maxCount;
+
+    /**
+     * @param maxCount max count of not added paths, 0 or less means no limit.
+     */
+    void setMaxCount(int maxCount) {
+        this.maxCount = maxCount;
+        if (maxCount <= 0) {
+            accesses.clear();
+        }
+    }
+
+    int getMaxCount() {
+        return maxCount;
+    }
+
+    /**
+     * Record path is accessed. No lock.
+     */
+    void touch(String path) {
+        long now = System.nanoTime();
+        Access access = accesses.get(path);
+        if (access == null) {
+            access = new Access(now);
+            Access old = accesses.putIfAbsent(path, access);
+            if (old == null) {
+                return;
+            }
+            access = old;
+        }
+        if (now - access.lastAccessNanos > TOUCH_GRANULARITY_NANOS) { // not write shared field at every access.
+            access.lastAccessNanos = now;
+        }
+    }
+
+    /**
+     * Path is added on purpose, never evict it.
+     */
+    void markAdded(String path) {
+        addedPaths.add(path);
+        accesses.remove(path);
+    }
+
+    boolean isAdded(String path) {
+        return addedPaths.contains(path);
+    }
+
+    /**
+     * @return not added paths, least recently used first.
+     */
+    List<String> getPathsByAccess() {
+        List<Map.Entry<String, Long>> times = new ArrayList<Map.Entry<String, Long>>(accesses.size());
+        for (Map.Entry<String, Access> entry : accesses.entrySet()) {
+            if (!addedPaths.contains(entry.getKey())) {
+                times.add(new AbstractMap.SimpleImmutableEntry<String, Long>(entry.getKey(),
+                        entry.getValue().lastAccessNanos));
+            }
+        }
+        Collections.sort(times, new Comparator<Map.Entry<String, Long>>() {
+            public int compare(Map.Entry<String, Long> o1, Map.Entry<String, Long> o2) {
+                long diff = o1.getValue() - o2.getValue(); // nano time only can be compared by difference.
+                return diff < 0 ? -1 : (diff > 0 ? 1 : 0);
+            }
+        });
+        List<String> paths = new ArrayList<String>(times.size());
+        for (Map.Entry<String, Long> time : times) {
+            paths.add(time.getKey());
+        }
+        return paths;
+    }
+
+    /**
+     * Stop record access of path, it is not in memory any more.
+     */
+    void remove(String path) {
+        accesses.remove(path);
+    }
+
+    /**
+     * Path is removed from memory, remember it.
+     */
+    void markEvicted(String path) {
+        accesses.remove(path);
+        evictedPaths.add(path);
+    }
+
+    /**
+     * Path is in memory again.
+     */
+    void unmarkEvicted(String path) {
+        evictedPaths.remove(path);
+    }
+
+    boolean isEvicted(String path) {
+        return evictedPaths.contains(path);
+    }
+
+    private static final class Access {
+
+        private volatile long lastAccessNanos;
+
+        private Access(long lastAccessNanos) {
+            this.lastAccessNanos = lastAccessNanos;
+        }
+
+    }
+
+}
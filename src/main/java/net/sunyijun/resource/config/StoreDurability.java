@@ -0,0 +1,43 @@
+/*
+ * Copyright 2015 yijun.sun
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.sunyijun.resource.config;
+
+/**
+ * <p>How durable a config file is after written.</p>
+ * Config file is always written into a temp file then renamed, so readers never see a partial file.
+ * Durability decide whether to wait until data really on disk.
+ *
+ * @author yijun.sun
+ * @see Configs#setStoreDurability(StoreDurability)
+ * @since 0.0.8
+ */
+public enum StoreDurability {
+
+    /**
+     * Not force to disk, leave it to operating system. Fastest, may lose latest write if machine crash.
+     */
+    NONE,
+    /**
+     * Force file content to disk before rename.
+     */
+    FSYNC_FILE,
+    /**
+     * Force file content to disk before rename, and force directory to disk after rename,
+     * so the rename itself also survives machine crash.
+     */
+    FSYNC_FILE_AND_DIR
+
+}
@@ -0,0 +1,198 @@
+/*
+ * Copyright 2015 yijun.sun
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.sunyijun.resource.library;
+
+
+import net.sunyijun.resource.ResourceLocator;
+import net.sunyijun.resource.ResourceUtil;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.JarURLConnection;
+import java.net.URLConnection;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.Charset;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.jar.JarEntry;
+
+
+/**
+ * <p>Copy library resources to file system, skip if target already same as resource.</p>
+ * After copy, a stamp file ".{name}.stamp" is written beside target, record resource's CRC and size
+ * (from jar entry, no need to read bytes), and target's size and last modified time.
+ * Next time if stamp still match both resource and target, copy is skipped without read any bytes.
+ * <p>
+ * Many processes may copy same library at same time. Copy hold a file lock ".{name}.lock" beside target,
+ * write into a temp file then rename to target, so target is never half written.
+ * After get lock, check again, if another process already copied, skip.
+ * </p>
+ *
+ * @author yijun.sun
+ * @since 0.0.8
+ */
+final class LibraryExtractor {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final ConcurrentMap<String, Object> THREAD_LOCKS = new ConcurrentHashMap<String, Object>();
+
+    private LibraryExtractor() {
+    }
+
+    /**
+     * Copy resource to target file, if target not same as resource.
+     *
+     * @return true if copied, false if skipped.
+     * @throws IOException if resource not found or copy failed.
+     */
+    static boolean extract(String libAbsoluteClassPath, File targetFile) throws IOException {
+        return extract(libAbsoluteClassPath, targetFile, true);
+    }
+
+    /**
+     * Copy resource to target file.
+     *
+     * @param overwriteChanged if true, copy when target not same as resource. If false, copy only when no target.
+     * @return true if copied, false if skipped.
+     * @throws IOException if resource not found or copy failed.
+     */
+    static boolean extract(String libAbsoluteClassPath, File targetFile, boolean overwriteChanged)
+            throws IOException {
+        ResourceLocator.Location location = ResourceLocator.locate(libAbsoluteClassPath);
+        if (!location.exists()) {
+            throw new IOException("Resource not found! " + libAbsoluteClassPath);
+        }
+        String sourceStamp = sourceStamp(location);
+        File stampFile = stampFile(targetFile);
+        if (isDone(overwriteChanged, sourceStamp, targetFile, stampFile)) {
+            return false;
+        }
+        Files.createDirectories(targetFile.getAbsoluteFile().getParentFile().toPath());
+        Object threadLock = getThreadLock(targetFile);
+        synchronized (threadLock) { // file lock is hold by process, also need lock threads in current process.
+            FileChannel lockChannel = FileChannel.open(lockFile(targetFile).toPath(),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            try {
+                FileLock lock = lockChannel.lock();
+                try {
+                    if (isDone(overwriteChanged, sourceStamp, targetFile, stampFile)) { // copied by others.
+                        return false;
+                    }
+                    ResourceUtil.copyResourceToFile(libAbsoluteClassPath, targetFile);
+                    if (sourceStamp != null) {
+                        writeStamp(sourceStamp, targetFile, stampFile);
+                    }
+                    return true;
+                } finally {
+                    lock.release();
+                }
+            } finally {
+                lockChannel.close();
+            }
+        }
+    }
+
+    private static boolean isDone(boolean overwriteChanged, String sourceStamp, File targetFile, File stampFile) {
+        if (!overwriteChanged) {
+            return targetFile.exists();
+        }
+        return sourceStamp != null && isSame(sourceStamp, targetFile, stampFile);
+    }
+
+    private static Object getThreadLock(File targetFile) {
+        String key = targetFile.getAbsolutePath();
+        Object lock = THREAD_LOCKS.get(key);
+        if (lock == null) {
+            Object newLock = new Object();
+            lock = THREAD_LOCKS.putIfAbsent(key, newLock);
+            if (lock == null) {
+                lock = newLock;
+            }
+        }
+        return lock;
+    }
+
+    private static void move(File source, File target) throws IOException {
+        try {
+            Files.move(source.toPath(), target.toPath(),
+                    StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Stamp of resource: CRC and size of jar entry, or size and last modified time of file.
+     *
+     * @return null if unknown, then always copy.
+     */
+    private static String sourceStamp(ResourceLocator.Location location) throws IOException {
+        File file = location.getFile();
+        if (file != null) {
+            return "file:" + file.length() + ":" + file.lastModified();
+        }
+        URLConnection connection = location.getUrl().openConnection();
+        if (!(connection instanceof JarURLConnection)) {
+            return null;
+        }
+        JarEntry entry = ((JarURLConnection) connection).getJarEntry();
+        if (entry == null || entry.getCrc() == -1 || entry.getSize() == -1) {
+            return null;
+        }
+        return "crc:" + Long.toHexString(entry.getCrc()) + ":" + entry.getSize();
+    }
+
+    private static String targetStamp(File targetFile) {
+        return targetFile.length() + ":" + targetFile.lastModified();
+    }
+
+    private static File lockFile(File targetFile) {
+        return new File(targetFile.getParentFile(), "." + targetFile.getName() + ".lock");
+    }
+
+    private static File stampFile(File targetFile) {
+        return new File(targetFile.getParentFile(), "." + targetFile.getName() + ".stamp");
+    }
+
+    private static boolean isSame(String sourceStamp, File targetFile, File stampFile) {
+        if (!targetFile.isFile() || !stampFile.isFile()) {
+            return false;
+        }
+        String stamp;
+        try {
+            stamp = new String(Files.readAllBytes(stampFile.toPath()), UTF_8);
+        } catch (IOException e) {
+            return false;
+        }
+        return stamp.equals(sourceStamp + "\n" + targetStamp(targetFile));
+    }
+
+    private static void writeStamp(String sourceStamp, File targetFile, File stampFile) throws IOException {
+        File tempFile = File.createTempFile(stampFile.getName() + ".", ".tmp", stampFile.getParentFile());
+        try {
+            Files.write(tempFile.toPath(), (sourceStamp + "\n" + targetStamp(targetFile)).getBytes(UTF_8));
+            move(tempFile, stampFile);
+        } finally {
+            Files.deleteIfExists(tempFile.toPath());
+        }
+    }
+
+}
@@ -0,0 +1,439 @@
+/*
+ * Copyright 2015 yijun.sun
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.sunyijun.resource.library;
+
+
+import net.sunyijun.resource.CacheDirs;
+import net.sunyijun.resource.ResourceLocator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+
+/**
+ * <p>Native library for current platform, placed in class path, loaded at first use.</p>
+ * Library resource is "/native/{platform}/{file name}", platform is {@link #getPlatform()} like "linux-x86_64",
+ * file name is {@link System#mapLibraryName(String)} like "libfoo.so" or "foo.dll".<br>
+ * Only library of current platform is copied, into a private cache dir, then loaded by {@link System#load(String)},
+ * no need to change "java.library.path". Not changed library is not copied again.
+ * <p>
+ * Example:<br>
+ * NativeLibrary.of("foo").load();
+ * </p>
+ * <p>
+ * Library may depend on other libraries, dependencies are loaded before it.
+ * Dependencies can be set by {@link #dependsOn(String...)},
+ * or in class path file {@value #DEPENDENCIES_CLASS_PATH}, each line like "foo=bar,baz".
+ * Use {@link #loadAll(String...)} to copy many libraries in parallel and load them in dependency order.
+ * </p>
+ *
+ * @author yijun.sun
+ * @since 0.0.8
+ */
+public final class NativeLibrary {
+
+    /**
+     * Class path dir of native libraries: {@value}
+     */
+    public static final String NATIVE_CLASS_PATH = "/native/";
+    /**
+     * Class path file of library dependencies: {@value}
+     */
+    public static final String DEPENDENCIES_CLASS_PATH = "/native/dependencies.properties";
+
+    private static final String PLATFORM = getOsName() + "-" + getArchName();
+    private static final ConcurrentMap<String, NativeLibrary> LIBRARIES = new ConcurrentHashMap<String, NativeLibrary>();
+    private static volatile File cacheDir;
+    private static volatile Properties declaredDependencies;
+
+    private final String name;
+    private final String absoluteClassPath;
+    private volatile File file;
+    private volatile boolean loaded;
+    /**
+     * Names of libraries this one depends on. Null means use dependencies in {@value #DEPENDENCIES_CLASS_PATH}.
+     */
+    private volatile String[] dependencies;
+
+    private NativeLibrary(String name) {
+        this.name = name;
+        this.absoluteClassPath = NATIVE_CLASS_PATH + PLATFORM + "/" + System.mapLibraryName(name);
+    }
+
+    /**
+     * Get library handle by name. Same name always get same handle. Nothing is copied or loaded.
+     *
+     * @param name library name without prefix or suffix, eg: "foo" for "libfoo.so" or "foo.dll".
+     * @return library handle.
+     */
+    public static NativeLibrary of(String name) {
+        NativeLibrary library = LIBRARIES.get(name);
+        if (library == null) {
+            NativeLibrary newLibrary = new NativeLibrary(name);
+            library = LIBRARIES.putIfAbsent(name, newLibrary);
+            if (library == null) {
+                library = newLibrary;
+            }
+        }
+        return library;
+    }
+
+    /**
+     * @return current platform, "{os}-{arch}", eg: "linux-x86_64", "windows-x86", "macos-aarch64".
+     */
+    public static String getPlatform() {
+        return PLATFORM;
+    }
+
+    /**
+     * Set dir to copy libraries into. Must set before any library copied.
+     * Default is "native-libs-{user.name}" in "java.io.tmpdir", only accessible by current user.
+     * If it is created by another user, or accessible by others, copy fails.
+     *
+     * @see CacheDirs#getUserCacheDir(String)
+     *
+     * @param dir cache dir
+     */
+    public static void setCacheDir(File dir) {
+        cacheDir = dir;
+    }
+
+    /**
+     * <p>Set libraries this one depends on, replace dependencies in {@value #DEPENDENCIES_CLASS_PATH}.</p>
+     * Must set before load.
+     *
+     * @param dependencyNames names of libraries this one depends on.
+     * @return this library.
+     */
+    public NativeLibrary dependsOn(String... dependencyNames) {
+        this.dependencies = dependencyNames.clone();
+        return this;
+    }
+
+    /**
+     * @return names of libraries this one depends on directly.
+     */
+    public String[] getDependencies() {
+        String[] dependencyNames = dependencies;
+        if (dependencyNames != null) {
+            return dependencyNames.clone();
+        }
+        String declared = getDeclaredDependencies().getProperty(name);
+        if (declared == null || declared.trim().isEmpty()) {
+            return new String[0];
+        }
+        return declared.trim().split("\\s*,\\s*");
+    }
+
+    /**
+     * <p>Copy libraries and dependencies of them in parallel, then load them in dependency order.</p>
+     * Each library is loaded as soon as all its dependencies loaded.
+     * Copy of libraries runs in parallel, but {@link System#load(String)} may hold a global lock
+     * (eg: on java 7 and 8), so load of libraries not depend on each other may still be one by one.
+     * If a library failed, libraries depend on it are not loaded, others are still loaded.
+     *
+     * @param names library names
+     * @return copy and load time of each library, and errors.
+     * @throws IllegalStateException if dependencies have a cycle.
+     */
+    public static NativeLibraryReport loadAll(String... names) {
+        List<NativeLibrary> ordered = sortByDependencies(names);
+        NativeLibraryReport report = new NativeLibraryReport();
+        for (NativeLibrary library : ordered) {
+            report.add(library.name);
+        }
+        int threads = Math.max(1, Math.min(ordered.size(), Runtime.getRuntime().availableProcessors()));
+        ExecutorService executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "native-loader");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        try {
+            Map<String, Future<?>> copied = new HashMap<String, Future<?>>();
+            for (NativeLibrary library : ordered) {
+                copied.put(library.name, executor.submit(library.copyTask(report)));
+            }
+            // Submitted in dependency order, queue is FIFO, so dependencies always start before, never deadlock.
+            Map<String, Future<?>> loads = new HashMap<String, Future<?>>();
+            for (NativeLibrary library : ordered) {
+                List<Future<?>> waitFor = new ArrayList<Future<?>>();
+                waitFor.add(copied.get(library.name));
+                for (String dependency : library.getDependencies()) {
+                    waitFor.add(loads.get(dependency));
+                }
+                loads.put(library.name, executor.submit(library.loadTask(waitFor, report)));
+            }
+            for (Future<?> load : loads.values()) {
+                try {
+                    load.get();
+                } catch (ExecutionException ignore) {
+                    // already in report.
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted when load libraries.", e);
+        } finally {
+            executor.shutdownNow();
+        }
+        LOGGER.info("Load libraries:\n" + report);
+        return report;
+    }
+
+    /**
+     * Libraries and all dependencies, dependencies before libraries depend on them.
+     */
+    private static List<NativeLibrary> sortByDependencies(String[] names) {
+        List<NativeLibrary> ordered = new ArrayList<NativeLibrary>();
+        Set<String> visited = new HashSet<String>();
+        Set<String> visiting = new LinkedHashSet<String>();
+        for (String name : names) {
+            visit(of(name), visited, visiting, ordered);
+        }
+        return ordered;
+    }
+
+    private static void visit(NativeLibrary library, Set<String> visited, Set<String> visiting,
+                              List<NativeLibrary> ordered) {
+        if (visited.contains(library.name)) {
+            return;
+        }
+        if (!visiting.add(library.name)) {
+            throw new IllegalStateException("Library dependencies have a cycle: " + visiting + " -> " + library.name);
+        }
+        for (String dependency : library.getDependencies()) {
+            visit(of(dependency), visited, visiting, ordered);
+        }
+        visiting.remove(library.name);
+        visited.add(library.name);
+        ordered.add(library);
+    }
+
+    private Callable<Void> copyTask(final NativeLibraryReport report) {
+        return new Callable<Void>() {
+            public Void call() throws IOException {
+                long start = System.nanoTime();
+                try {
+                    getFile();
+                } catch (Throwable e) { // any error must be in report, eg: SecurityException.
+                    report.failed(name, e);
+                    throw e;
+                } finally {
+                    report.copied(name, System.nanoTime() - start);
+                }
+                return null;
+            }
+        };
+    }
+
+    private Callable<Void> loadTask(final List<Future<?>> waitFor, final NativeLibraryReport report) {
+        return new Callable<Void>() {
+            public Void call() throws Exception {
+                for (Future<?> future : waitFor) {
+                    try {
+                        future.get();
+                    } catch (ExecutionException e) {
+                        if (!report.isFailed(name)) {
+                            report.failed(name, new IllegalStateException("Dependency failed.", e.getCause()));
+                        }
+                        throw e;
+                    }
+                }
+                long start = System.nanoTime();
+                try {
+                    loadWithoutDependencies();
+                } catch (Throwable e) { // any error must be in report, eg: SecurityException.
+                    report.failed(name, e);
+                    throw e;
+                } finally {
+                    report.loaded(name, System.nanoTime() - start);
+                }
+                return null;
+            }
+        };
+    }
+
+    private static Properties getDeclaredDependencies() {
+        Properties properties = declaredDependencies;
+        if (properties != null) {
+            return properties;
+        }
+        properties = new Properties();
+        ResourceLocator.Location location = ResourceLocator.locate(DEPENDENCIES_CLASS_PATH);
+        if (location.exists()) {
+            InputStream is = null;
+            try {
+                is = location.openStream();
+                properties.load(is);
+            } catch (IOException e) {
+                LOGGER.warn("Read library dependencies " + location + " error!", e);
+            } finally {
+                if (is != null) {
+                    try {
+                        is.close();
+                    } catch (IOException ignore) {
+                        // do nothing.
+                    }
+                }
+            }
+        }
+        declaredDependencies = properties;
+        return properties;
+    }
+
+    /**
+     * @return library name.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return library resource absolute class path of current platform.
+     */
+    public String getAbsoluteClassPath() {
+        return absoluteClassPath;
+    }
+
+    /**
+     * Copy library into cache dir if not copied.
+     *
+     * @return library file in cache dir.
+     * @throws IOException if library of current platform not found, or copy failed.
+     */
+    public File getFile() throws IOException {
+        File libraryFile = file;
+        if (libraryFile == null) {
+            synchronized (this) {
+                libraryFile = file;
+                if (libraryFile == null) {
+                    libraryFile = new File(new File(getCacheDir(), PLATFORM), System.mapLibraryName(name));
+                    if (LibraryExtractor.extract(absoluteClassPath, libraryFile)) {
+                        LOGGER.info("Copy library " + absoluteClassPath + " to " + libraryFile.getAbsolutePath());
+                    }
+                    file = libraryFile;
+                }
+            }
+        }
+        return libraryFile;
+    }
+
+    /**
+     * Copy and load library, load its dependencies first. If already loaded, do nothing.
+     *
+     * @throws IOException           if library of current platform not found, or copy failed.
+     * @throws UnsatisfiedLinkError  if load failed.
+     * @throws IllegalStateException if dependencies have a cycle.
+     */
+    public void load() throws IOException {
+        if (loaded) {
+            return;
+        }
+        for (NativeLibrary library : sortByDependencies(new String[]{name})) { // this one is the last.
+            library.loadWithoutDependencies();
+        }
+    }
+
+    private void loadWithoutDependencies() throws IOException {
+        if (loaded) {
+            return;
+        }
+        synchronized (this) {
+            if (loaded) {
+                return;
+            }
+            System.load(getFile().getAbsolutePath());
+            loaded = true;
+            LOGGER.info("Success load library: " + name);
+        }
+    }
+
+    /**
+     * @return true if library is loaded.
+     */
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    @Override
+    public String toString() {
+        return absoluteClassPath;
+    }
+
+    private static File getCacheDir() throws IOException {
+        File dir = cacheDir;
+        if (dir != null) {
+            return dir;
+        }
+        synchronized (NativeLibrary.class) {
+            if (cacheDir == null) {
+                cacheDir = CacheDirs.getUserCacheDir("native-libs");
+            }
+            return cacheDir;
+        }
+    }
+
+    private static String getOsName() {
+        String os = System.getProperty("os.name").toLowerCase(Locale.ENGLISH);
+        if (os.startsWith("windows")) {
+            return "windows";
+        }
+        if (os.startsWith("mac") || os.startsWith("darwin")) {
+            return "macos";
+        }
+        return os.replaceAll("[^a-z0-9]", "");
+    }
+
+    private static String getArchName() {
+        String arch = System.getProperty("os.arch").toLowerCase(Locale.ENGLISH);
+        if (arch.equals("amd64") || arch.equals("x86_64") || arch.equals("x86-64")) {
+            return "x86_64";
+        }
+        if (arch.equals("x86") || arch.equals("i386") || arch.equals("i486") || arch.equals("i586")
+                || arch.equals("i686")) {
+            return "x86";
+        }
+        if (arch.equals("aarch64") || arch.equals("arm64")) {
+            return "aarch64";
+        }
+        return arch.replaceAll("[^a-z0-9_]", "");
+    }
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(NativeLibrary.class);
+
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2015 yijun.sun
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.sunyijun.resource.library;
+
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * <p>Copy and load time of each library, and errors, by {@link NativeLibrary#loadAll(String...)}.</p>
+ * Libraries are in dependency order.
+ *
+ * @author yijun.sun
+ * @since 0.0.8
+ */
+public final class NativeLibraryReport {
+
+    private final Map<String, long[]> times = new LinkedHashMap<String, long[]>();
+    private final Map<String, Throwable> errors = new LinkedHashMap<String, Throwable>();
+
+    NativeLibraryReport() {
+    }
+
+    synchronized void add(String name) {
+        getTimes(name);
+    }
+
+    synchronized void copied(String name, long nanos) {
+        getTimes(name)[0] = nanos;
+    }
+
+    synchronized void loaded(String name, long nanos) {
+        getTimes(name)[1] = nanos;
+    }
+
+    synchronized void failed(String name, Throwable error) {
+        getTimes(name);
+        errors.put(name, error);
+    }
+
+    synchronized boolean isFailed(String name) {
+        return errors.containsKey(name);
+    }
+
+    private long[] getTimes(String name) {
+        long[] libraryTimes = times.get(name);
+        if (libraryTimes == null) {
+            libraryTimes = new long[2];
+            times.put(name, libraryTimes);
+        }
+        return libraryTimes;
+    }
+
+    /**
+     * @return names of all libraries, include dependencies.
+     */
+    public synchronized List<String> getNames() {
+        return new ArrayList<String>(times.keySet());
+    }
+
+    /**
+     * @return time to copy library, in milliseconds. 0 if not copied.
+     */
+    public synchronized long getCopyMillis(String name) {
+        long[] libraryTimes = times.get(name);
+        return libraryTimes == null ? 0 : TimeUnit.NANOSECONDS.toMillis(libraryTimes[0]);
+    }
+
+    /**
+     * @return time to load library, in milliseconds. 0 if not loaded.
+     */
+    public synchronized long getLoadMillis(String name) {
+        long[] libraryTimes = times.get(name);
+        return libraryTimes == null ? 0 : TimeUnit.NANOSECONDS.toMillis(libraryTimes[1]);
+    }
+
+    /**
+     * @return error of library, null if success.
+     */
+    public synchronized Throwable getError(String name) {
+        return errors.get(name);
+    }
+
+    /**
+     * @return true if all libraries loaded.
+     */
+    public synchronized boolean isSuccess() {
+        return errors.isEmpty();
+    }
+
+    @Override
+    public synchronized String toString() {
+        StringBuilder report = new StringBuilder();
+        for (Map.Entry<String, long[]> entry : times.entrySet()) {
+            String name = entry.getKey();
+            report.append(name).append(": copy ").append(TimeUnit.NANOSECONDS.toMillis(entry.getValue()[0]))
+                    .append("ms, load ").append(TimeUnit.NANOSECONDS.toMillis(entry.getValue()[1])).append("ms");
+            Throwable error = errors.get(name);
+            if (error != null) {
+                report.append(", failed: ").append(error);
+            }
+            report.append('\n');
+        }
+        return report.toString();
+    }
+
+}
@@ -16,7 +16,6 @@
 package net.sunyijun.resource.library;
 
 
-import net.sunyijun.resource.ResourceUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -32,7 +31,9 @@ import java.util.Set;
  * {@link #loadLibFiles}. If won't changed at all, just {@link #loadLibFiles}.
  * This may call System.loadLibrary()<br>
  * If library file is dll or so files, can use {@link #loadDllFiles} or {@link #loadSoFiles}
- * instead of {@link #loadLibFiles}.
+ * instead of {@link #loadLibFiles}.<br>
+ * If libraries of many platforms are placed in class path, use {@link NativeLibrary} instead,
+ * only library of current platform is copied and loaded.
  *
  * @author yijun.sun
  * @since 0.0.1
@@ -45,6 +46,7 @@ public class PrepareLibs {
      * <p>Initial library resources: copy resources from class path
      * to library path either library file exists or not exists in library path.</p>
      * Use this method can use newest library file.
+     * If library file already same as resource(by CRC and size recorded when copied), copy is skipped.
      *
      * @param libAbsoluteClassPaths library absolute class path(start with"/"), include file name.
      * @throws IOException
@@ -72,7 +74,7 @@ public class PrepareLibs {
      * @return so library class paths that failed to load. If all success, return array size is 0.
      */
     public static String[] loadSoFiles(String... dllAbsoluteClassPaths) {
-        return loadLibFiles(".dll", dllAbsoluteClassPaths);
+        return loadLibFiles(".so", dllAbsoluteClassPaths);
     }
 
     /**
@@ -85,8 +87,12 @@ public class PrepareLibs {
     public static String[] loadLibFiles(String fileSuffix, String... libAbsoluteClassPaths) {
         Set<String> failedDllPaths = new HashSet<String>();
         for (String libAbsoluteClassPath : libAbsoluteClassPaths) {
-            String libraryName = libAbsoluteClassPath
-                    .substring(libAbsoluteClassPath.lastIndexOf("/") + 1, libAbsoluteClassPath.lastIndexOf(fileSuffix));
+            String fileName = libAbsoluteClassPath.substring(libAbsoluteClassPath.lastIndexOf("/") + 1);
+            String libraryName = fileName.substring(0, fileName.lastIndexOf(fileSuffix));
+            if (!System.mapLibraryName(libraryName).equals(fileName) && libraryName.startsWith("lib")
+                    && System.mapLibraryName(libraryName.substring(3)).equals(fileName)) {
+                libraryName = libraryName.substring(3); // "libxxx.so" is loaded by name "xxx".
+            }
             try {
                 prepareLibFile(true, libAbsoluteClassPath);
                 System.loadLibrary(libraryName);
@@ -117,13 +123,12 @@ public class PrepareLibs {
     private static void prepareLibFile(boolean recoverExistsFile, String libAbsoluteClassPath) throws IOException {
         File targetFile = new File(ONE_SYSTEM_LIBRARY_PATH + File.separator +
                 libAbsoluteClassPath.substring(libAbsoluteClassPath.lastIndexOf("/") + 1));
-        if (!recoverExistsFile && targetFile.exists()) {
-            LOGGER.info("Skip copy lib file " + libAbsoluteClassPath);
-            return;
-        }
-        LOGGER.info("Copy lib file " + libAbsoluteClassPath + " to " + targetFile.getAbsolutePath());
         try {
-            ResourceUtil.copyResourceToFile(libAbsoluteClassPath, targetFile);
+            if (LibraryExtractor.extract(libAbsoluteClassPath, targetFile, recoverExistsFile)) {
+                LOGGER.info("Copy lib file " + libAbsoluteClassPath + " to " + targetFile.getAbsolutePath());
+            } else {
+                LOGGER.info("Skip copy lib file " + libAbsoluteClassPath + ", not changed.");
+            }
         } catch (IOException e) {
             LOGGER.error("Copy lib file " + libAbsoluteClassPath + " failed.");
             throw e;